@@ -37,8 +37,10 @@ public final class HobbUtils extends JavaPlugin {
   @Override
   public void onDisable() {
     if(console != null) console.log(Level.INFO, "Hobb-Utils has been disabled!");
+    if(hookManager != null) hookManager.close();
     thisPlugin = null;
     host = null;
     console = null;
+    hookManager = null;
   }
 }
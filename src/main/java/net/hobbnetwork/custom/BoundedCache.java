@@ -0,0 +1,262 @@
+package net.hobbnetwork.custom;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A thread-safe cache with a maximum size (or weight) that evicts the least recently used entries first.<br>
+ * Entries can optionally expire a fixed time after they were written.<br>
+ * The cache is split into segments that are locked separately, so concurrent callers rarely wait for each other.
+ * Every segment holds an equal share of the maximum weight and evicts on its own.<br>
+ * <b>NOTE:</b> null keys and values are not stored, putting a null value invalidates the key instead.
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+public class BoundedCache<K, V> {
+  private static final int MAX_SEGMENTS = 16;
+  private final Segment<K, V>[] segments;
+  @Getter private final long maximumWeight;
+  @Getter private final long ttlMillis;
+  private final long ttlNanos;
+  private final Weigher<K, V> weigher;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * This constructor creates a cache that holds at most maximumSize entries and never expires them
+   * @param maximumSize The maximum amount of entries
+   */
+  public BoundedCache(long maximumSize) {
+    this(maximumSize, 0, null);
+  }
+  /**
+   * This constructor creates a new BoundedCache
+   * @param maximumWeight The maximum total weight of all entries
+   * @param ttlMillis The time after writing an entry after which it expires, 0 or less never expires entries
+   * @param weigher The weigher of the entries, or null to give every entry a weight of 1
+   */
+  @SuppressWarnings("unchecked")
+  public BoundedCache(long maximumWeight, long ttlMillis, @Nullable Weigher<K, V> weigher) {
+    if(maximumWeight < 1) throw new IllegalArgumentException("[BoundedCache] maximumWeight must be at least 1");
+    this.maximumWeight = maximumWeight;
+    this.ttlMillis = Math.max(0, ttlMillis);
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(this.ttlMillis);
+    this.weigher = weigher == null ? (k, v) -> 1 : weigher;
+    int count = (int) Math.min(MAX_SEGMENTS, Math.max(1, Long.highestOneBit(maximumWeight / 64)));
+    this.segments = new Segment[count];
+    long perSegment = Math.max(1, maximumWeight / count);
+    for(int i = 0; i < count; i++) segments[i] = new Segment<>(perSegment);
+  }
+
+  private Segment<K, V> segmentFor(Object key) {
+    int h = key.hashCode();
+    h ^= (h >>> 16);
+    return segments[h & (segments.length - 1)];
+  }
+
+  /**
+   * This method gets a value and marks it as recently used
+   * @param key The key to get the value of
+   * @return The value or null if it is not cached or has expired
+   */
+  @Nullable public V get(@NotNull K key) {
+    Segment<K, V> segment = segmentFor(key);
+    V value;
+    synchronized(segment) {
+      Entry<V> entry = segment.get(key);
+      if(entry != null && entry.isExpired(System.nanoTime())) {
+        segment.remove(key);
+        segment.weight -= entry.weight;
+        evictions.increment();
+        entry = null;
+      }
+      value = entry == null ? null : entry.value;
+    }
+    if(value == null) misses.increment();
+    else hits.increment();
+    return value;
+  }
+  /**
+   * This method gets a value, or computes and caches it when it is missing.<br>
+   * The value is computed outside the lock, so two callers can compute the same key at the same time
+   * @param key The key to get the value of
+   * @param loader The function that computes the value, it may return null which is then not cached
+   * @return The cached or computed value
+   */
+  @Nullable public V get(@NotNull K key, @NotNull Function<? super K, ? extends V> loader) {
+    V value = get(key);
+    if(value != null) return value;
+    value = loader.apply(key);
+    put(key, value);
+    return value;
+  }
+  /**
+   * This method caches a value, evicting the least recently used entries if the cache gets too heavy
+   * @param key The key to cache the value for
+   * @param value The value to cache, null invalidates the key
+   */
+  public void put(@NotNull K key, @Nullable V value) {
+    if(value == null) {
+      invalidate(key);
+      return;
+    }
+    long weight = Math.max(0, weigher.weigh(key, value));
+    long expiresAt = ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0;
+    Segment<K, V> segment = segmentFor(key);
+    int evicted = 0;
+    synchronized(segment) {
+      Entry<V> previous = segment.put(key, new Entry<>(value, weight, expiresAt));
+      if(previous != null) segment.weight -= previous.weight;
+      segment.weight += weight;
+      Iterator<Map.Entry<K, Entry<V>>> it = segment.entrySet().iterator();
+      while(segment.weight > segment.maximumWeight && it.hasNext()) {
+        Map.Entry<K, Entry<V>> eldest = it.next();
+        if(eldest.getKey() == key && segment.size() == 1) break; // Never evict the only (just added) entry
+        segment.weight -= eldest.getValue().weight;
+        it.remove();
+        evicted++;
+      }
+    }
+    if(evicted > 0) evictions.add(evicted);
+  }
+  /**
+   * This method removes a key from the cache
+   * @param key The key to remove
+   */
+  public void invalidate(@NotNull K key) {
+    Segment<K, V> segment = segmentFor(key);
+    synchronized(segment) {
+      Entry<V> previous = segment.remove(key);
+      if(previous != null) segment.weight -= previous.weight;
+    }
+  }
+  /**
+   * This method removes all keys from the cache
+   */
+  public void invalidateAll() {
+    for(Segment<K, V> segment : segments) {
+      synchronized(segment) {
+        segment.clear();
+        segment.weight = 0;
+      }
+    }
+  }
+  /**
+   * @return The amount of entries in the cache, which can include expired entries that have not been removed yet
+   */
+  public long size() {
+    long size = 0;
+    for(Segment<K, V> segment : segments) {
+      synchronized(segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+  /**
+   * This method copies the entries of the cache, without marking them as recently used
+   * @return A copy of all entries that have not expired
+   */
+  @NotNull public Map<K, V> snapshot() {
+    HashMap<K, V> copy = new HashMap<>();
+    long now = System.nanoTime();
+    for(Segment<K, V> segment : segments) {
+      synchronized(segment) {
+        segment.forEach((key, entry) -> {
+          if(!entry.isExpired(now)) copy.put(key, entry.value);
+        });
+      }
+    }
+    return copy;
+  }
+  /**
+   * @return The total weight of all entries in the cache
+   */
+  public long weight() {
+    long weight = 0;
+    for(Segment<K, V> segment : segments) {
+      synchronized(segment) {
+        weight += segment.weight;
+      }
+    }
+    return weight;
+  }
+  /**
+   * @return The amount of times {@link #get(Object)} found a value
+   */
+  public long getHitCount() {
+    return hits.sum();
+  }
+  /**
+   * @return The amount of times {@link #get(Object)} found no value
+   */
+  public long getMissCount() {
+    return misses.sum();
+  }
+  /**
+   * @return The amount of entries that were removed because the cache was full or the entry expired
+   */
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+  /**
+   * @return The fraction of {@link #get(Object)} calls that found a value, between 0 and 1
+   */
+  public double getHitRate() {
+    long h = hits.sum();
+    long total = h + misses.sum();
+    return total == 0 ? 0 : h / (double) total;
+  }
+
+  @Override
+  public String toString() {
+    return "BoundedCache{" +
+      "size=" + size() +
+      ",weight=" + weight() +
+      ",maximumWeight=" + maximumWeight +
+      ",hits=" + getHitCount() +
+      ",misses=" + getMissCount() +
+      ",evictions=" + getEvictionCount() +
+      ",hitRate=" + String.format("%.3f", getHitRate()) +
+      '}';
+  }
+
+  /**
+   * This interface is used to calculate the weight of an entry
+   * @param <K> The type of the keys
+   * @param <V> The type of the values
+   */
+  @FunctionalInterface
+  public interface Weigher<K, V> {
+    long weigh(@NotNull K key, @NotNull V value);
+  }
+
+  private record Entry<V>(V value, long weight, long expiresAt) {
+    private boolean isExpired(long now) {
+      return expiresAt != 0 && now - expiresAt >= 0;
+    }
+  }
+
+  /**
+   * A part of the cache with its own lock, the {@link LinkedHashMap} in access order keeps the least recently used entry first
+   */
+  private static class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+    private final long maximumWeight;
+    private long weight = 0;
+
+    private Segment(long maximumWeight) {
+      super(16, 0.75f, true);
+      this.maximumWeight = maximumWeight;
+    }
+  }
+}
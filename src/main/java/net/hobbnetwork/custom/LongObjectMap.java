@@ -0,0 +1,175 @@
+package net.hobbnetwork.custom;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * A hash map with primitive long keys, so looking up a key does not box it into a {@link Long}.<br>
+ * The keys and values are kept in two arrays with open addressing, which is cheaper to walk than the nodes of a {@link java.util.HashMap}.<br>
+ * <b>NOTE:</b> null values are not stored, putting a null value removes the key instead. This class is not thread-safe
+ * @param <V> The type of the values
+ */
+public class LongObjectMap<V> {
+  private static final int MIN_CAPACITY = 16;
+  private long[] keys;
+  private Object[] values;
+  private int mask;
+  private int size = 0;
+
+  /**
+   * This constructor creates an empty map
+   */
+  public LongObjectMap() {
+    this(MIN_CAPACITY);
+  }
+  /**
+   * This constructor creates an empty map that holds the expected amount of keys without growing
+   * @param expectedSize The expected amount of keys
+   */
+  public LongObjectMap(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize * 2 - 1)) << 1;
+    this.keys = new long[capacity];
+    this.values = new Object[capacity];
+    this.mask = capacity - 1;
+  }
+
+  private int indexOf(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & mask;
+  }
+
+  /**
+   * @param key The key to get the value of
+   * @return The value or null if the key is not in the map
+   */
+  @SuppressWarnings("unchecked")
+  @Nullable public V get(long key) {
+    for(int i = indexOf(key); values[i] != null; i = (i + 1) & mask) {
+      if(keys[i] == key) return (V) values[i];
+    }
+    return null;
+  }
+  /**
+   * This method gets a value, or creates and stores it when the key is not in the map
+   * @param key The key to get the value of
+   * @param creator Creates the value, it should not return null
+   * @return The stored or created value
+   */
+  @SuppressWarnings("unchecked")
+  @NotNull public V computeIfAbsent(long key, @NotNull LongFunction<V> creator) {
+    int i = indexOf(key);
+    for(; values[i] != null; i = (i + 1) & mask) {
+      if(keys[i] == key) return (V) values[i];
+    }
+    V value = creator.apply(key);
+    keys[i] = key;
+    values[i] = value;
+    if(++size * 2 > values.length) resize(values.length << 1);
+    return value;
+  }
+  /**
+   * @param key The key to store the value for
+   * @param value The value, null removes the key
+   * @return The previous value or null if there was none
+   */
+  @SuppressWarnings("unchecked")
+  @Nullable public V put(long key, @Nullable V value) {
+    if(value == null) return remove(key);
+    int i = indexOf(key);
+    for(; values[i] != null; i = (i + 1) & mask) {
+      if(keys[i] == key) {
+        V previous = (V) values[i];
+        values[i] = value;
+        return previous;
+      }
+    }
+    keys[i] = key;
+    values[i] = value;
+    if(++size * 2 > values.length) resize(values.length << 1);
+    return null;
+  }
+  /**
+   * @param key The key to remove
+   * @return The removed value or null if the key was not in the map
+   */
+  @SuppressWarnings("unchecked")
+  @Nullable public V remove(long key) {
+    for(int i = indexOf(key); values[i] != null; i = (i + 1) & mask) {
+      if(keys[i] != key) continue;
+      V previous = (V) values[i];
+      shiftBack(i);
+      size--;
+      return previous;
+    }
+    return null;
+  }
+
+  /**
+   * This method fills the gap of a removed key by moving later keys of the same probe sequence back, so lookups never stop too early
+   * @param gap The index of the removed key
+   */
+  private void shiftBack(int gap) {
+    int i = gap;
+    while(true) {
+      i = (i + 1) & mask;
+      if(values[i] == null) break;
+      int home = indexOf(keys[i]);
+      // Move the key if its home is not between the gap and its current index (cyclically)
+      if(((i - home) & mask) >= ((i - gap) & mask)) {
+        keys[gap] = keys[i];
+        values[gap] = values[i];
+        gap = i;
+      }
+    }
+    values[gap] = null;
+  }
+
+  private void resize(int capacity) {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new long[capacity];
+    values = new Object[capacity];
+    mask = capacity - 1;
+    for(int j = 0; j < oldValues.length; j++) {
+      if(oldValues[j] == null) continue;
+      int i = indexOf(oldKeys[j]);
+      while(values[i] != null) i = (i + 1) & mask;
+      keys[i] = oldKeys[j];
+      values[i] = oldValues[j];
+    }
+  }
+
+  /**
+   * This method gives every value to an action, in no particular order
+   * @param action The action to give the values to, it should not add or remove keys
+   */
+  @SuppressWarnings("unchecked")
+  public void forEachValue(@NotNull Consumer<V> action) {
+    for(Object value : values) {
+      if(value != null) action.accept((V) value);
+    }
+  }
+  /**
+   * @return The amount of keys in the map
+   */
+  public int size() {
+    return size;
+  }
+  /**
+   * @return Whether the map has no keys
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+  /**
+   * This method removes all keys
+   */
+  public void clear() {
+    Arrays.fill(values, null);
+    size = 0;
+  }
+}
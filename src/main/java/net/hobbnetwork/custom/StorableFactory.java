@@ -0,0 +1,79 @@
+package net.hobbnetwork.custom;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * This class creates {@link Storable} values from their string form without reflection on every read.<br>
+ * A plugin can register a decoder once per class using {@link #register(Class, Function)}, which is the fastest option.
+ * Otherwise, the public no-args constructor of the class is looked up once and cached as a {@link MethodHandle},
+ * and every read creates an instance with it to call {@link Storable#fromString(String)} on.
+ */
+public class StorableFactory {
+  private static final MethodType NO_ARGS = MethodType.methodType(void.class);
+  private static final ConcurrentHashMap<Class<?>, Function<String, ?>> REGISTERED = new ConcurrentHashMap<>();
+  private static final ClassValue<Function<String, ?>> DECODERS = new ClassValue<>() {
+    @Override
+    protected Function<String, ?> computeValue(@NotNull Class<?> type) {
+      Function<String, ?> registered = REGISTERED.get(type);
+      return registered != null ? registered : fromConstructor(type);
+    }
+  };
+
+  static {
+    register(Tuple.class, Tuple::parse);
+    register(Triple.class, Triple::parse);
+  }
+
+  /**
+   * This method registers the decoder of a {@link Storable} class, it replaces the decoder that was used for the class before
+   * @param type The class of the values
+   * @param decoder The function that turns the string form (see {@link Storable#toString()}) back into a value
+   * @param <T> The type of the values
+   */
+  static public <T> void register(@NotNull Class<T> type, @NotNull Function<String, ? extends T> decoder) {
+    REGISTERED.put(type, decoder);
+    DECODERS.remove(type);
+  }
+
+  /**
+   * This method gets the decoder of a class, which is looked up only once per class
+   * @param type The class of the values, which should implement {@link Storable}
+   * @return The decoder of the class
+   * @param <T> The type of the values
+   */
+  @SuppressWarnings("unchecked")
+  @NotNull static public <T> Function<String, T> get(@NotNull Class<T> type) {
+    return (Function<String, T>) DECODERS.get(type);
+  }
+
+  private static Function<String, ?> fromConstructor(Class<?> type) {
+    if(!Storable.class.isAssignableFrom(type)) {
+      return (s) -> {
+        throw new IllegalStateException("[StorableFactory] " + type.getName() + " does not implement Storable");
+      };
+    }
+    MethodHandle constructor;
+    try {
+      constructor = MethodHandles.publicLookup().findConstructor(type, NO_ARGS).asType(MethodType.methodType(Object.class));
+    } catch(ReflectiveOperationException e) {
+      return (s) -> {
+        throw new IllegalStateException("[StorableFactory] " + type.getName() + " has no public no-args constructor, register a decoder instead", e);
+      };
+    }
+    return (s) -> {
+      try {
+        return ((Storable<?>) (Object) constructor.invokeExact()).fromString(s);
+      } catch(RuntimeException | Error e) {
+        throw e;
+      } catch(Throwable t) {
+        throw new IllegalStateException("[StorableFactory] Could not create " + type.getName(), t);
+      }
+    };
+  }
+}
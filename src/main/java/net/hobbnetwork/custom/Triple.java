@@ -36,13 +36,22 @@ public class Triple<T,U,F> implements Storable<Triple<T,U,F>> {
       '}';
   }
   @Override
+  @SuppressWarnings("unchecked")
   public Triple<T, U, F> fromString(String s) {
+    return (Triple<T, U, F>) parse(s);
+  }
+  /**
+   * This method creates a Triple from its string form, without needing an instance like {@link #fromString(String)}
+   * @param s The string form of the Triple, see {@link #toString()}
+   * @return The Triple, or a Triple of nulls if the string could not be read
+   */
+  public static Triple<String, String, String> parse(String s) {
     String[] parts = s
       .replace("Triple{first=", "")
       .replace("second=", "")
       .replace("third=", "").split(",");
     try {
-      return new Triple<>((T) parts[0], (U) parts[1], (F) parts[2]);
+      return new Triple<>(parts[0], parts[1], parts[2]);
     } catch (Exception e) {
       return new Triple<>(null, null, null);
     }
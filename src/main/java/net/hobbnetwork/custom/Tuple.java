@@ -29,12 +29,21 @@ public class Tuple<T,U> implements Storable<Tuple<T,U>> {
       '}';
   }
   @Override
+  @SuppressWarnings("unchecked")
   public Tuple<T, U> fromString(String s) {
+    return (Tuple<T, U>) parse(s);
+  }
+  /**
+   * This method creates a Tuple from its string form, without needing an instance like {@link #fromString(String)}
+   * @param s The string form of the Tuple, see {@link #toString()}
+   * @return The Tuple, or a Tuple of nulls if the string could not be read
+   */
+  public static Tuple<String, String> parse(String s) {
     String[] parts = s
       .replace("Tuple{first=", "")
       .replace("second=", "").split(",");
     try {
-      return new Tuple<>((T) parts[0], (U) parts[1]);
+      return new Tuple<>(parts[0], parts[1]);
     } catch (Exception e) {
       return new Tuple<>(null, null);
     }
@@ -0,0 +1,151 @@
+package net.hobbnetwork.listeners;
+
+import net.hobbnetwork.managers.HookManager;
+import net.hobbnetwork.utils.GUIUtils;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.function.Supplier;
+
+public class GUIListener implements Listener {
+  private static final HashMap<Plugin, GUIListener> listeners = new HashMap<>();
+  private final Plugin plugin;
+  /**
+   * The GUIs that are open, by the identity of their inventory, so a click only costs a single lookup
+   */
+  private final IdentityHashMap<Inventory, GUIUtils> openGUIs = new IdentityHashMap<>();
+  /**
+   * The GUIs that are kept after closing, see {@link GUIUtils#setRetention(GUIUtils.Retention, String)}.
+   * Every value gives the GUI or null once a weakly or softly kept GUI was garbage collected
+   */
+  private final HashMap<String, Supplier<GUIUtils>> retained = new HashMap<>();
+
+  /**
+   * This class routes the inventory events of a plugin to its {@link GUIUtils}, there is only one per plugin
+   * @param pl The plugin that is using this class
+   */
+  private GUIListener(Plugin pl) {
+    this.plugin = pl;
+    pl.getServer().getPluginManager().registerEvents(this, pl);
+  }
+
+  /**
+   * This method gets the listener of a plugin and registers it the first time.<br>
+   * <b>NOTE:</b> like all inventory code, this should only be called on the main thread
+   * @param hookManager The HookManager of the plugin
+   * @return The listener of the plugin, or null if the HookManager is not hooked
+   */
+  @Nullable public static GUIListener get(@NotNull HookManager hookManager) {
+    if(!hookManager.isHooked()) return null;
+    return listeners.computeIfAbsent(hookManager.getPlugin(), GUIListener::new);
+  }
+
+  /**
+   * This method routes the clicks in an inventory to a GUI until the inventory is closed by its last viewer
+   * @param inventory The inventory of the GUI
+   * @param gui The GUI
+   */
+  public void track(@NotNull Inventory inventory, @NotNull GUIUtils gui) {
+    openGUIs.put(inventory, gui);
+  }
+  /**
+   * This method stops routing the clicks in an inventory
+   * @param inventory The inventory of the GUI
+   */
+  public void untrack(@NotNull Inventory inventory) {
+    openGUIs.remove(inventory);
+  }
+  /**
+   * This method keeps a GUI after it is closed, so it can be found again by its key
+   * @param key The key of the GUI, a GUI that was kept with the same key before is replaced
+   * @param gui The GUI
+   * @param retention How strongly the GUI is kept
+   */
+  public void retain(@NotNull String key, @NotNull GUIUtils gui, @NotNull GUIUtils.Retention retention) {
+    switch (retention) {
+      case STRONG -> retained.put(key, () -> gui);
+      case SOFT -> retained.put(key, new SoftReference<>(gui)::get);
+      case WEAK -> retained.put(key, new WeakReference<>(gui)::get);
+      default -> retained.remove(key);
+    }
+  }
+  /**
+   * This method stops keeping a GUI, if the key still belongs to that GUI
+   * @param key The key of the GUI
+   * @param gui The GUI
+   */
+  public void forget(@NotNull String key, @NotNull GUIUtils gui) {
+    Supplier<GUIUtils> kept = retained.get(key);
+    if (kept != null && kept.get() == gui) retained.remove(key);
+  }
+  /**
+   * @param key The key of the GUI
+   * @return The kept GUI, or null if there is none or it was garbage collected
+   */
+  @Nullable public GUIUtils getRetained(@NotNull String key) {
+    Supplier<GUIUtils> kept = retained.get(key);
+    GUIUtils gui = kept == null ? null : kept.get();
+    if (kept != null && (gui == null || gui.isDisposed())) {
+      retained.remove(key);
+      return null;
+    }
+    return gui;
+  }
+  /**
+   * @return The amount of GUIs that are kept after closing, without the ones that were garbage collected
+   */
+  public int getRetainedCount() {
+    retained.values().removeIf((kept) -> kept.get() == null);
+    return retained.size();
+  }
+  /**
+   * @return The amount of GUIs that are open
+   */
+  public int getOpenCount() {
+    return openGUIs.size();
+  }
+
+  /**
+   * This event handler gives a click in a GUI to the GUI it belongs to
+   */
+  @EventHandler
+  public void onInventoryClick(InventoryClickEvent event) {
+    GUIUtils gui = openGUIs.get(event.getInventory());
+    if (gui == null) return;
+    gui.onInventoryClick(event);
+  }
+  /**
+   * This event handler stops routing the clicks of a GUI once its last viewer closes it
+   */
+  @EventHandler
+  public void onInventoryClose(InventoryCloseEvent event) {
+    Inventory inventory = event.getInventory();
+    GUIUtils gui = openGUIs.get(inventory);
+    if (gui == null) return;
+    // The player that closes the inventory is still one of its viewers
+    if (inventory.getViewers().size() > 1) return;
+    openGUIs.remove(inventory);
+    gui.onLastViewerClosed();
+  }
+  /**
+   * This event handler forgets the listener of a plugin that disables, so it is registered again when the plugin enables
+   */
+  @EventHandler
+  public void onPluginDisable(PluginDisableEvent event) {
+    if (event.getPlugin() != plugin) return;
+    openGUIs.clear();
+    retained.clear();
+    listeners.remove(plugin);
+  }
+}
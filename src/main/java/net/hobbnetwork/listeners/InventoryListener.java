@@ -0,0 +1,111 @@
+package net.hobbnetwork.listeners;
+
+import net.hobbnetwork.managers.HookManager;
+import net.hobbnetwork.utils.InventoryIndex;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.player.PlayerDropItemEvent;
+import org.bukkit.event.player.PlayerItemBreakEvent;
+import org.bukkit.event.player.PlayerItemConsumeEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerSwapHandItemsEvent;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+
+public class InventoryListener implements Listener {
+  private static final HashMap<Plugin, InventoryListener> listeners = new HashMap<>();
+  private final Plugin plugin;
+
+  /**
+   * This class forgets the cached {@link InventoryIndex} of a player when their inventory changes, there is only one per plugin
+   * @param pl The plugin that is using this class
+   */
+  private InventoryListener(Plugin pl) {
+    this.plugin = pl;
+    pl.getServer().getPluginManager().registerEvents(this, pl);
+  }
+
+  /**
+   * This method gets the listener of a plugin and registers it the first time
+   * @param hookManager The HookManager of the plugin
+   * @return The listener of the plugin, or null if the HookManager is not hooked
+   */
+  @Nullable public static InventoryListener get(@NotNull HookManager hookManager) {
+    if(!hookManager.isHooked()) return null;
+    return listeners.computeIfAbsent(hookManager.getPlugin(), InventoryListener::new);
+  }
+
+  private static void invalidate(HumanEntity entity) {
+    if(entity instanceof Player player) InventoryIndex.invalidate(player);
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onInventoryClick(InventoryClickEvent event) {
+    invalidate(event.getWhoClicked());
+  }
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onInventoryDrag(InventoryDragEvent event) {
+    invalidate(event.getWhoClicked());
+  }
+  /**
+   * This event handler also catches the changes made in inventories that do not call click events, like the crafting grid
+   */
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onInventoryClose(InventoryCloseEvent event) {
+    invalidate(event.getPlayer());
+  }
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onPickup(EntityPickupItemEvent event) {
+    if(event.getEntity() instanceof Player player) InventoryIndex.invalidate(player);
+  }
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onDrop(PlayerDropItemEvent event) {
+    InventoryIndex.invalidate(event.getPlayer());
+  }
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onConsume(PlayerItemConsumeEvent event) {
+    InventoryIndex.invalidate(event.getPlayer());
+  }
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onItemBreak(PlayerItemBreakEvent event) {
+    InventoryIndex.invalidate(event.getPlayer());
+  }
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onBlockPlace(BlockPlaceEvent event) {
+    InventoryIndex.invalidate(event.getPlayer());
+  }
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onSwapHands(PlayerSwapHandItemsEvent event) {
+    InventoryIndex.invalidate(event.getPlayer());
+  }
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onDeath(PlayerDeathEvent event) {
+    InventoryIndex.invalidate(event.getEntity());
+  }
+  @EventHandler
+  public void onQuit(PlayerQuitEvent event) {
+    InventoryIndex.forget(event.getPlayer().getUniqueId());
+  }
+  /**
+   * This event handler stops caching for the plugin when it disables, so it is registered again when the plugin enables
+   */
+  @EventHandler
+  public void onPluginDisable(PluginDisableEvent event) {
+    if(event.getPlugin() != plugin) return;
+    InventoryIndex.disableCaching(plugin);
+    listeners.remove(plugin);
+  }
+}
@@ -5,6 +5,7 @@ import net.hobbnetwork.listeners.Safeguards;
 import net.hobbnetwork.utils.LogUtil;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 @Getter
@@ -14,6 +15,11 @@ public class HookManager {
   private final boolean debug;
   private final String prefixHex;
   private final boolean loggingToFile;
+  private final boolean jsonLogging;
+  /**
+   * The logging pipeline of this hook, its overflow policy and counters can be changed and read here
+   */
+  private final LogUtil logUtil;
   /**
    * Use this method to hook a plugin into the Hobb Utils
    * This class will also initiate the {@link Safeguards} class
@@ -22,6 +28,7 @@ public class HookManager {
    *                index 0: Whether to enable debug mode
    *                index 1: The prefix color in hex, default is #00fdff
    *                index 2: Whether to log to a file instead of the console
+   *                index 3: "json" writes the log file as one JSON object per line, see {@link LogUtil.OutputFormat}
    */
   public HookManager(JavaPlugin plugin, String... options) {
     this.plugin = plugin;
@@ -29,6 +36,8 @@ public class HookManager {
     this.debug = options.length > 0 && options[0].equals("true");
     this.prefixHex = options.length > 1 && options[1].length() >= 6 ? options[1] : "#00fdff";
     this.loggingToFile = options.length > 2 && options[2].equals("true");
+    this.jsonLogging = options.length > 3 && options[3].equalsIgnoreCase("json");
+    this.logUtil = new LogUtil(this);
     new Safeguards(this.plugin);
   }
   /**
@@ -38,12 +47,33 @@ public class HookManager {
    * @param message The message to log
    */
   public void log(Level level, Object... message) {
-    LogUtil logUtil = new LogUtil(this);
     logUtil.log(level, message);
   }
   public void log(LogUtil.LogLevel lvl, Object... message) {
-    LogUtil logUtil = new LogUtil(this);
     logUtil.log(lvl, message);
   }
+  /**
+   * This method logs a message that is only built when the level is enabled, use it for expensive DEBUG and TEST messages
+   * @param level The level of the message
+   * @param message The supplier of the message
+   * @see LogUtil#setMinimumLevel(Level)
+   */
+  public void log(Level level, Supplier<String> message) {
+    logUtil.log(level, message);
+  }
+  /**
+   * @param level The level to check
+   * @return Whether messages of the level are logged
+   */
+  public boolean isLoggable(Level level) {
+    return logUtil.isLoggable(level);
+  }
+  /**
+   * This method writes all log records that are still waiting and stops the logging thread, call it when the plugin disables.
+   * Messages logged afterwards are written right away
+   */
+  public void close() {
+    logUtil.close();
+  }
 
 }
\ No newline at end of file
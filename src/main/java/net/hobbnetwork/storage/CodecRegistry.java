@@ -0,0 +1,266 @@
+package net.hobbnetwork.storage;
+
+import net.hobbnetwork.custom.Storable;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class turns stored values into compact, versioned bytes and back.<br>
+ * Every encoded value starts with the {@link #FORMAT_VERSION} and the id of the {@link ValueCodec} that wrote it,
+ * so values can always be read back without knowing the type of the key.<br>
+ * There are built-in codecs for the primitives, {@link String}, {@link UUID}, {@link Location} and byte arrays.
+ * A location in a world that is not loaded keeps the UID of its world, see {@link #getWorldUID(Location)}.
+ * {@link Storable} values are stored as their string form and other {@link Serializable} values fall back to Java serialization.<br>
+ * Plugins can register their own codecs with the ids {@value #MIN_CUSTOM_ID} up to and including {@value #MAX_CUSTOM_ID}.
+ */
+public class CodecRegistry {
+  /**
+   * The version of the binary format, written as the first byte of every value
+   */
+  public static final byte FORMAT_VERSION = 1;
+  public static final int MIN_CUSTOM_ID = 64;
+  public static final int MAX_CUSTOM_ID = 126;
+  private static final int STORABLE_ID = 12;
+  private static final int SERIALIZED_ID = 127;
+  private static final ConcurrentHashMap<Class<?>, Registered> BY_TYPE = new ConcurrentHashMap<>();
+  /**
+   * Codecs can be registered at any time, the atomic array makes them visible to the storage threads right away
+   */
+  private static final AtomicReferenceArray<Registered> BY_ID = new AtomicReferenceArray<>(128);
+  private static final ThreadLocal<Buffer> BUFFER = ThreadLocal.withInitial(Buffer::new);
+
+  static {
+    registerBuiltIn(1, String.class, new ValueCodec<>() {
+      public void write(@NotNull DataOutput out, @NotNull String value) throws IOException { writeString(out, value); }
+      public @NotNull String read(@NotNull DataInput in) throws IOException { return readString(in); }
+    });
+    registerBuiltIn(2, Integer.class, new ValueCodec<>() {
+      public void write(@NotNull DataOutput out, @NotNull Integer value) throws IOException { out.writeInt(value); }
+      public @NotNull Integer read(@NotNull DataInput in) throws IOException { return in.readInt(); }
+    });
+    registerBuiltIn(3, Long.class, new ValueCodec<>() {
+      public void write(@NotNull DataOutput out, @NotNull Long value) throws IOException { out.writeLong(value); }
+      public @NotNull Long read(@NotNull DataInput in) throws IOException { return in.readLong(); }
+    });
+    registerBuiltIn(4, Double.class, new ValueCodec<>() {
+      public void write(@NotNull DataOutput out, @NotNull Double value) throws IOException { out.writeDouble(value); }
+      public @NotNull Double read(@NotNull DataInput in) throws IOException { return in.readDouble(); }
+    });
+    registerBuiltIn(5, Float.class, new ValueCodec<>() {
+      public void write(@NotNull DataOutput out, @NotNull Float value) throws IOException { out.writeFloat(value); }
+      public @NotNull Float read(@NotNull DataInput in) throws IOException { return in.readFloat(); }
+    });
+    registerBuiltIn(6, Boolean.class, new ValueCodec<>() {
+      public void write(@NotNull DataOutput out, @NotNull Boolean value) throws IOException { out.writeBoolean(value); }
+      public @NotNull Boolean read(@NotNull DataInput in) throws IOException { return in.readBoolean(); }
+    });
+    registerBuiltIn(7, Short.class, new ValueCodec<>() {
+      public void write(@NotNull DataOutput out, @NotNull Short value) throws IOException { out.writeShort(value); }
+      public @NotNull Short read(@NotNull DataInput in) throws IOException { return in.readShort(); }
+    });
+    registerBuiltIn(8, Byte.class, new ValueCodec<>() {
+      public void write(@NotNull DataOutput out, @NotNull Byte value) throws IOException { out.writeByte(value); }
+      public @NotNull Byte read(@NotNull DataInput in) throws IOException { return in.readByte(); }
+    });
+    registerBuiltIn(9, Character.class, new ValueCodec<>() {
+      public void write(@NotNull DataOutput out, @NotNull Character value) throws IOException { out.writeChar(value); }
+      public @NotNull Character read(@NotNull DataInput in) throws IOException { return in.readChar(); }
+    });
+    registerBuiltIn(10, UUID.class, new ValueCodec<>() {
+      public void write(@NotNull DataOutput out, @NotNull UUID value) throws IOException {
+        out.writeLong(value.getMostSignificantBits());
+        out.writeLong(value.getLeastSignificantBits());
+      }
+      public @NotNull UUID read(@NotNull DataInput in) throws IOException { return new UUID(in.readLong(), in.readLong()); }
+    });
+    registerBuiltIn(11, Location.class, new ValueCodec<>() {
+      public void write(@NotNull DataOutput out, @NotNull Location value) throws IOException {
+        UUID worldUID = getWorldUID(value);
+        out.writeBoolean(worldUID != null);
+        if(worldUID != null) {
+          out.writeLong(worldUID.getMostSignificantBits());
+          out.writeLong(worldUID.getLeastSignificantBits());
+        }
+        out.writeDouble(value.getX());
+        out.writeDouble(value.getY());
+        out.writeDouble(value.getZ());
+        out.writeFloat(value.getYaw());
+        out.writeFloat(value.getPitch());
+      }
+      public @NotNull Location read(@NotNull DataInput in) throws IOException {
+        UUID worldUID = in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+        World world = worldUID == null ? null : Bukkit.getWorld(worldUID);
+        double x = in.readDouble(), y = in.readDouble(), z = in.readDouble();
+        float yaw = in.readFloat(), pitch = in.readFloat();
+        if(worldUID != null && world == null) return new UnloadedWorldLocation(worldUID, x, y, z, yaw, pitch);
+        return new Location(world, x, y, z, yaw, pitch);
+      }
+    });
+    registerBuiltIn(13, byte[].class, new ValueCodec<>() {
+      public void write(@NotNull DataOutput out, byte[] value) throws IOException {
+        out.writeInt(value.length);
+        out.write(value);
+      }
+      public byte[] read(@NotNull DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+      }
+    });
+  }
+
+  /**
+   * This method registers a codec for a type, it replaces any codec that was registered for that type before
+   * @param id The id that is written in front of every value, between {@value #MIN_CUSTOM_ID} and {@value #MAX_CUSTOM_ID}.
+   *           <b>NOTE:</b> the id is stored in the database, so it should never change for a type
+   * @param type The class of the values
+   * @param codec The codec to use
+   * @param <T> The type of the values
+   */
+  static public synchronized <T> void register(int id, @NotNull Class<T> type, @NotNull ValueCodec<T> codec) {
+    if(id < MIN_CUSTOM_ID || id > MAX_CUSTOM_ID)
+      throw new IllegalArgumentException("[CodecRegistry] Custom codec ids must be between " + MIN_CUSTOM_ID + " and " + MAX_CUSTOM_ID);
+    Registered existing = BY_ID.get(id);
+    if(existing != null && existing.type() != type)
+      throw new IllegalArgumentException("[CodecRegistry] Id " + id + " is already used for " + existing.type().getName());
+    registerBuiltIn(id, type, codec);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static synchronized <T> void registerBuiltIn(int id, Class<T> type, ValueCodec<T> codec) {
+    Registered registered = new Registered(id, type, (ValueCodec<Object>) codec);
+    BY_ID.set(id, registered);
+    BY_TYPE.put(type, registered);
+  }
+
+  /**
+   * This method gets the codec id that is used for values of a key
+   * @param type The type of the key, see {@link TypedKeyValue#getType()}
+   * @param value The value, its own class is used when the type of the key has no codec
+   * @return The id of the codec
+   */
+  static public int getCodecId(@NotNull Class<?> type, @NotNull Object value) {
+    Registered registered = BY_TYPE.get(type);
+    if(registered == null) registered = BY_TYPE.get(value.getClass());
+    if(registered != null) return registered.id();
+    if(value instanceof Storable<?>) return STORABLE_ID;
+    return SERIALIZED_ID;
+  }
+
+  /**
+   * This method encodes a value
+   * @param type The type of the key, see {@link TypedKeyValue#getType()}
+   * @param value The value to encode
+   * @return The encoded bytes, starting with the format version and the codec id
+   * @throws IOException If the value could not be written, e.g. because it is not {@link Serializable} and has no codec
+   */
+  static public byte[] encode(@NotNull Class<?> type, @NotNull Object value) throws IOException {
+    int id = getCodecId(type, value);
+    Buffer buffer = BUFFER.get();
+    buffer.reset();
+    DataOutputStream out = buffer.out;
+    out.writeByte(FORMAT_VERSION);
+    out.writeByte(id);
+    if(id == STORABLE_ID) {
+      writeString(out, String.valueOf(value));
+    } else if(id == SERIALIZED_ID) {
+      if(!(value instanceof Serializable))
+        throw new NotSerializableException("[CodecRegistry] " + value.getClass().getName() + " has no codec and is not Serializable");
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+        oos.writeObject(value);
+      }
+      out.writeInt(bytes.size());
+      bytes.writeTo(out);
+    } else {
+      BY_ID.get(id).codec().write(out, value);
+    }
+    out.flush();
+    return buffer.toByteArray();
+  }
+
+  /**
+   * This method decodes a value that was encoded using {@link #encode(Class, Object)}.<br>
+   * {@link Storable} values are returned as their string form, use {@link Storable#fromString(String)} to get the object
+   * @param bytes The encoded bytes
+   * @return The decoded value
+   * @throws IOException If the bytes were written by an unknown format version or codec
+   */
+  @Nullable static public Object decode(byte[] bytes) throws IOException {
+    if(bytes == null) return null;
+    if(bytes.length < 2) throw new EOFException("[CodecRegistry] Value is too short");
+    if(bytes[0] != FORMAT_VERSION) throw new IOException("[CodecRegistry] Unknown format version " + bytes[0]);
+    int id = bytes[1] & 0x7F;
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 2, bytes.length - 2));
+    if(id == STORABLE_ID) return readString(in);
+    if(id == SERIALIZED_ID) {
+      byte[] serialized = new byte[in.readInt()];
+      in.readFully(serialized);
+      try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+        return ois.readObject();
+      } catch(ClassNotFoundException e) {
+        throw new IOException("[CodecRegistry] Could not deserialize value", e);
+      }
+    }
+    Registered registered = BY_ID.get(id);
+    if(registered == null) throw new IOException("[CodecRegistry] No codec registered for id " + id);
+    return registered.codec().read(in);
+  }
+
+  /**
+   * This method gets the UID of the world of a location, also for a decoded location whose world was not loaded.
+   * Such a location has no world, but writing it again keeps its world
+   * @param location The location
+   * @return The UID of the world, or null if the location has no world
+   */
+  @Nullable static public UUID getWorldUID(@NotNull Location location) {
+    if(location instanceof UnloadedWorldLocation unloaded) return unloaded.worldUID;
+    return location.isWorldLoaded() ? location.getWorld().getUID() : null;
+  }
+
+  private static void writeString(DataOutput out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInput in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private record Registered(int id, Class<?> type, ValueCodec<Object> codec) {}
+
+  /**
+   * A decoded location whose world is not loaded, it remembers the UID of the world so it is not lost when the location is stored again
+   */
+  private static class UnloadedWorldLocation extends Location {
+    private final UUID worldUID;
+
+    private UnloadedWorldLocation(UUID worldUID, double x, double y, double z, float yaw, float pitch) {
+      super(null, x, y, z, yaw, pitch);
+      this.worldUID = worldUID;
+    }
+  }
+
+  /**
+   * A per-thread output buffer, so encoding only allocates the resulting array
+   */
+  private static class Buffer extends ByteArrayOutputStream {
+    private final DataOutputStream out = new DataOutputStream(this);
+
+    private Buffer() {
+      super(256);
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package net.hobbnetwork.storage;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A small bounded pool of JDBC connections.<br>
+ * At most {@link #getMaxConnections()} connections are handed out at the same time, callers that exceed this
+ * wait (up to {@link #getTimeoutMillis()}) until another caller returns its {@link PooledConnection}.<br>
+ * The pool keeps track of how long callers had to wait, so storage latency can be monitored.
+ */
+public class ConnectionPool implements AutoCloseable {
+  /**
+   * Idle connections that have not been used for this long are validated before they are handed out again
+   */
+  private static final long VALIDATE_AFTER_NANOS = TimeUnit.SECONDS.toNanos(30);
+  private final ConnectionFactory factory;
+  @Getter private final String name;
+  @Getter private final int maxConnections;
+  @Getter private final long timeoutMillis;
+  private final Semaphore permits;
+  private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger opened = new AtomicInteger();
+  private final LongAdder acquired = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+  private final LongAdder totalWaitNanos = new LongAdder();
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+  private volatile boolean closed = false;
+
+  /**
+   * This constructor creates a new ConnectionPool, connections are opened lazily
+   * @param name The name of the pool, used in error messages
+   * @param maxConnections The maximum amount of connections that can be in use at the same time
+   * @param timeoutMillis The maximum time to wait for a connection before failing
+   * @param factory The factory that opens new connections
+   */
+  public ConnectionPool(@NotNull String name, int maxConnections, long timeoutMillis, @NotNull ConnectionFactory factory) {
+    if(maxConnections < 1) throw new IllegalArgumentException("[ConnectionPool] maxConnections must be at least 1");
+    this.name = name;
+    this.maxConnections = maxConnections;
+    this.timeoutMillis = timeoutMillis;
+    this.factory = factory;
+    this.permits = new Semaphore(maxConnections, true);
+  }
+
+  /**
+   * This method borrows a connection from the pool, opening a new one if no idle connection is available.<br>
+   * The connection should be returned by closing the {@link PooledConnection}, preferably using try-with-resources
+   * @return A connection that is exclusively owned by the caller until it is closed
+   * @throws SQLException If the pool is closed, no connection became available in time or a new connection could not be opened
+   */
+  @NotNull public PooledConnection acquire() throws SQLException {
+    if(closed) throw new SQLException("[ConnectionPool] " + name + " is closed");
+    long start = System.nanoTime();
+    try {
+      if(!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+        timeouts.increment();
+        throw new SQLTimeoutException("[ConnectionPool] " + name + " had no free connection within " + timeoutMillis + "ms");
+      }
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("[ConnectionPool] Interrupted while waiting for a connection of " + name, e);
+    }
+    long waited = System.nanoTime() - start;
+    acquired.increment();
+    totalWaitNanos.add(waited);
+    maxWaitNanos.accumulateAndGet(waited, Math::max);
+    try {
+      PooledConnection pc;
+      while((pc = idle.pollFirst()) != null) {
+        if(isUsable(pc)) break;
+        pc.discard();
+        opened.decrementAndGet();
+      }
+      if(pc == null) {
+        pc = new PooledConnection(this, factory.create());
+        opened.incrementAndGet();
+      } else {
+        pc.reuse();
+      }
+      active.incrementAndGet();
+      return pc;
+    } catch(SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * This method is called by {@link PooledConnection#close()} to give the connection back to the pool
+   * @param pc The connection to give back
+   */
+  void release(@NotNull PooledConnection pc) {
+    active.decrementAndGet();
+    boolean broken;
+    try {
+      broken = pc.getConnection().isClosed();
+    } catch(SQLException e) {
+      broken = true;
+    }
+    if(closed || broken) {
+      pc.discard();
+      opened.decrementAndGet();
+    } else {
+      pc.touch();
+      idle.offerFirst(pc);
+    }
+    permits.release();
+  }
+
+  private static boolean isUsable(PooledConnection pc) {
+    try {
+      if(pc.getConnection().isClosed()) return false;
+      return System.nanoTime() - pc.getLastUsed() < VALIDATE_AFTER_NANOS || pc.getConnection().isValid(1);
+    } catch(SQLException e) {
+      return false;
+    }
+  }
+
+  /**
+   * This method closes all idle connections and makes sure borrowed connections are closed once they are returned
+   */
+  @Override
+  public void close() {
+    closed = true;
+    PooledConnection pc;
+    while((pc = idle.pollFirst()) != null) {
+      pc.discard();
+      opened.decrementAndGet();
+    }
+  }
+
+  /**
+   * @return The amount of connections that are currently borrowed
+   */
+  public int getActiveConnections() {
+    return active.get();
+  }
+  /**
+   * @return The amount of connections that are open but currently not borrowed
+   */
+  public int getIdleConnections() {
+    return idle.size();
+  }
+  /**
+   * @return The amount of connections that are currently open, both active and idle
+   */
+  public int getOpenConnections() {
+    return opened.get();
+  }
+  /**
+   * @return The amount of callers currently waiting for a connection
+   */
+  public int getWaitingCallers() {
+    return permits.getQueueLength();
+  }
+  /**
+   * @return The total amount of connections that have been handed out
+   */
+  public long getAcquireCount() {
+    return acquired.sum();
+  }
+  /**
+   * @return The amount of times a caller gave up waiting for a connection
+   */
+  public long getTimeoutCount() {
+    return timeouts.sum();
+  }
+  /**
+   * @return The average time a caller had to wait for a connection in milliseconds
+   */
+  public double getAverageWaitMillis() {
+    long count = acquired.sum();
+    return count == 0 ? 0 : totalWaitNanos.sum() / (double) count / 1_000_000d;
+  }
+  /**
+   * @return The longest time a caller had to wait for a connection in milliseconds
+   */
+  public double getMaxWaitMillis() {
+    return maxWaitNanos.get() / 1_000_000d;
+  }
+
+  @Override
+  public String toString() {
+    return "ConnectionPool{" +
+      "name=" + name +
+      ",active=" + getActiveConnections() +
+      ",idle=" + getIdleConnections() +
+      ",max=" + maxConnections +
+      ",waiting=" + getWaitingCallers() +
+      ",acquired=" + getAcquireCount() +
+      ",timeouts=" + getTimeoutCount() +
+      ",avgWaitMs=" + String.format("%.3f", getAverageWaitMillis()) +
+      ",maxWaitMs=" + String.format("%.3f", getMaxWaitMillis()) +
+      '}';
+  }
+
+  /**
+   * This interface is used to open new connections for a {@link ConnectionPool}
+   */
+  @FunctionalInterface
+  public interface ConnectionFactory {
+    @NotNull Connection create() throws SQLException;
+  }
+}
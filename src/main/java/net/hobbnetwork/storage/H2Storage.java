@@ -1,33 +1,40 @@
 package net.hobbnetwork.storage;
 
-import net.hobbnetwork.custom.Storable;
 import net.hobbnetwork.managers.HookManager;
 import net.hobbnetwork.utils.LogUtil;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.io.IOException;
 import java.sql.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 
-public class H2Storage extends Storage {
-  private final HookManager hookManager;
+/**
+ * This class stores the values in an embedded H2 database in the data folder of the plugin
+ */
+public class H2Storage extends SQLStorage {
   private static final String USER = "sa";
   private static final String PASSWORD = "password";
-  private Connection connection;
+  private static final String MERGE_SQL = "MERGE INTO `key_value` (`key`, `value`) VALUES (?, ?);";
+  private static final String CREATE_SQL = "CREATE TABLE IF NOT EXISTS `key_value` (`key` VARCHAR(255) NOT NULL PRIMARY KEY, `value` VARBINARY NOT NULL);";
 
-  public H2Storage(HookManager hookManager) {
-    this.hookManager = hookManager;
+  /**
+   * This constructor creates a new H2Storage object with its own connection pool and executor
+   * @param hookManager The HookManager object
+   * @param options The options to use for the storage <br>
+   *                index 0: The maximum amount of connections in the pool, default is 4<br>
+   *                index 1: "true" runs the queries on virtual threads instead of a fixed pool of platform threads<br>
+   */
+  public H2Storage(HookManager hookManager, String... options) {
+    super(hookManager, "h2", false, options);
+    String jdbcUrl;
     try {
-      String jdbcUrl = getH2URL(hookManager);
-      Class.forName("org.h2.Driver");
-      connection = DriverManager.getConnection(jdbcUrl, USER, PASSWORD);
-      String couldInit = init("hobb-storage").join() ? "Successfully initialized" : "Could not Initialize";
-      hookManager.log(LogUtil.LogLevel.DEBUG, "[H2Storage] " + couldInit + " H2 storage!");
-    } catch (Exception e) {
-      hookManager.log(LogUtil.LogLevel.CRASH, "[H2Storage] Initializing the H2 Database failed!", e);
+      jdbcUrl = getH2URL(hookManager);
+    } catch(IllegalStateException e) {
+      hookManager.log(LogUtil.LogLevel.CRASH, prefix + "Initializing the H2 Database failed!", e);
+      return;
     }
+    open("org.h2.Driver", () -> DriverManager.getConnection(jdbcUrl, USER, PASSWORD));
   }
 
   private static @NotNull String getH2URL(HookManager hookManager) {
@@ -40,90 +47,97 @@ public class H2Storage extends Storage {
   }
 
   @Override
-  public CompletableFuture<Boolean> init(@NotNull String tableName, String... useless) {
-    return createTable(tableName);
+  protected @NotNull String getUpsertSQL() {
+    return MERGE_SQL;
   }
 
   @Override
-  public CompletableFuture<Boolean> setValue(@NotNull TypedKeyValue<?> tkv, @Nullable Object value) {
-    return CompletableFuture.supplyAsync(() -> {
-      String insertSQL = value == null
-        ? "DELETE FROM `key_value` WHERE `key` = ?;"
-        : "MERGE INTO `key_value` (`key`, `value`) VALUES (?, ?);";
-      try (PreparedStatement pstmt = connection.prepareStatement(insertSQL)) {
-        pstmt.setString(1, tkv.getKey());
-        if(value != null) {
-          Object v = value instanceof Storable<?> s ? s.toString() : value;
-          pstmt.setObject(2, v, Types.JAVA_OBJECT);
-        }
-        return pstmt.executeUpdate() != 0;
-      } catch (Exception e) {
-        hookManager.log(Level.SEVERE, "[H2Storage] Could not set value!\t"+tkv.getKey()+"\n", e);
-        return false;
-      }
-    });
+  protected @NotNull String getCreateTableSQL() {
+    return CREATE_SQL;
   }
 
   @Override
-  public CompletableFuture<Object> getValue(@NotNull TypedKeyValue<?> tkv) {
-    return CompletableFuture.supplyAsync(() -> {
-      String selectSQL = "SELECT `value` FROM `key_value` WHERE `key` = ?;";
-      try (PreparedStatement pstmt = connection.prepareStatement(selectSQL)) {
-        pstmt.setString(1, tkv.getKey());
-        ResultSet rs = pstmt.executeQuery();
-        if(!rs.next()) return null;
-        // try casting to Storable and use the readFrom method, catch using the dynamicGson:
-        Object res = rs.getObject("value", Object.class);
-        // If the type implements Storable, try to read it from the string, otherwise cast it to the type
-        return (Storable.class.isAssignableFrom(tkv.getType()))
-          ? ((Storable<?>) tkv.getType().getConstructor().newInstance()).fromString(res.toString())
-          : tkv.getType().cast(res);
-      } catch (Exception e) {
-        hookManager.log(Level.SEVERE, "[H2Storage] Could not get value!\t"+tkv.getKey()+"\n", e);
-        return null;
-      }
-    });
+  protected void afterCreateTable(@NotNull PooledConnection pc, @NotNull Statement stmt) throws SQLException, IOException {
+    recoverMigration(stmt);
+    if("JAVA_OBJECT".equalsIgnoreCase(getValueColumnType(stmt))) migrateJavaObjects(pc);
   }
 
-  @Override
-  public CompletableFuture<Boolean> removeValue(@NotNull TypedKeyValue<?> tkv) {
-    return setValue(tkv, null);
+  private static boolean tableExists(Statement stmt, String table) throws SQLException {
+    try(ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM `INFORMATION_SCHEMA`.`TABLES` WHERE LOWER(`TABLE_NAME`) = '" + table + "';")) {
+      return rs.next() && rs.getInt(1) > 0;
+    }
   }
 
-  @Override
-  public void close() {
-    try {
-      connection.close();
-    } catch (SQLException e) {
-      hookManager.log(Level.SEVERE, "[H2Storage] Could not close connection!", e);
+  /**
+   * This method finishes a {@link #migrateJavaObjects(PooledConnection) migration} that was stopped between its renames.<br>
+   * If both `key_value_old` and `key_value_migration` exist, the server stopped after the old table was moved aside,
+   * so `key_value` is the empty table that was just created and the migrated table is moved into its place.
+   * If only `key_value_old` exists, the migration was done and only the old table is left to drop
+   * @param stmt A statement of the connection
+   */
+  private void recoverMigration(Statement stmt) throws SQLException {
+    if(!tableExists(stmt, "key_value_old")) return;
+    if(tableExists(stmt, "key_value_migration")) {
+      try(ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM `key_value`;")) {
+        if(rs.next() && rs.getLong(1) > 0) {
+          hookManager.log(Level.SEVERE, prefix + "Found `key_value_old` and `key_value_migration` next to a filled `key_value` table, " +
+            "leaving them untouched. Please check the database manually!");
+          return;
+        }
+      }
+      hookManager.log(Level.WARNING, prefix + "Finishing an interrupted migration of `key_value`...");
+      stmt.execute("DROP TABLE `key_value`;");
+      stmt.execute("ALTER TABLE `key_value_migration` RENAME TO `key_value`;");
     }
+    stmt.execute("DROP TABLE `key_value_old`;");
   }
 
-  public CompletableFuture<Boolean> clear() {
-    return CompletableFuture.supplyAsync(() -> {
-      String deleteSQL = "TRUNCATE TABLE `key_value`;";
-      try (PreparedStatement pstmt = connection.prepareStatement(deleteSQL)) {
-        return pstmt.executeUpdate() != 0;
-      } catch (SQLException e) {
-        hookManager.log(Level.SEVERE, "[H2Storage] Could not clear table!", e);
-        return false;
-      }
-    });
+  private static String getValueColumnType(Statement stmt) throws SQLException {
+    try(ResultSet rs = stmt.executeQuery("SELECT `DATA_TYPE` FROM `INFORMATION_SCHEMA`.`COLUMNS` " +
+      "WHERE LOWER(`TABLE_NAME`) = 'key_value' AND LOWER(`COLUMN_NAME`) = 'value';")) {
+      return rs.next() ? rs.getString(1) : null;
+    }
   }
 
-  public CompletableFuture<Boolean> createTable(String tableName) {
-    return CompletableFuture.supplyAsync(() -> {
-      String createSQL = "CREATE TABLE IF NOT EXISTS `key_value` (`key` VARCHAR(255) NOT NULL PRIMARY KEY, `value` JAVA_OBJECT NOT NULL);";
-      try(Statement stmt = connection.createStatement()) {
-        boolean suc = !stmt.execute(createSQL);
-        int rows = stmt.getUpdateCount();
-        if(rows == 1) hookManager.log(Level.FINE, "[H2Storage] Creating table `key_value`");
-        if(rows == 0) hookManager.log(Level.FINEST, "[H2Storage] `key_value` table was found!");
-        return suc;
-      } catch(SQLException e) {
-        hookManager.log(LogUtil.LogLevel.CRASH, "[H2Storage] Could not create table `" + tableName + "` ", e);
-        return false;
+  /**
+   * This method migrates a `key_value` table from before the {@link CodecRegistry} existed, which stored its values as JAVA_OBJECT.<br>
+   * Every value is deserialized once and re-encoded into a new VARBINARY table, which then replaces the old table.<br>
+   * H2 commits every DDL statement on its own, so the tables are swapped in steps that never lose a table:
+   * `key_value` is renamed to `key_value_old`, `key_value_migration` is renamed to `key_value` and only then the old table is dropped.
+   * If the copy fails, the migration is simply retried on the next start, if the server stops between the steps, {@link #recoverMigration(Statement)} finishes it
+   * @param pc The connection to migrate with
+   */
+  private void migrateJavaObjects(PooledConnection pc) throws SQLException, IOException {
+    hookManager.log(Level.INFO, prefix + "Migrating `key_value` from JAVA_OBJECT to binary values...");
+    Connection connection = pc.getConnection();
+    connection.setAutoCommit(false);
+    int migrated = 0;
+    try(Statement stmt = connection.createStatement()) {
+      stmt.execute("DROP TABLE IF EXISTS `key_value_migration`;");
+      stmt.execute("CREATE TABLE `key_value_migration` (`key` VARCHAR(255) NOT NULL PRIMARY KEY, `value` VARBINARY NOT NULL);");
+      try(ResultSet rs = stmt.executeQuery("SELECT `key`, `value` FROM `key_value`;");
+          PreparedStatement insert = connection.prepareStatement("INSERT INTO `key_value_migration` (`key`, `value`) VALUES (?, ?);")) {
+        while(rs.next()) {
+          Object value = rs.getObject("value");
+          if(value == null) continue;
+          insert.setString(1, rs.getString("key"));
+          insert.setBytes(2, CodecRegistry.encode(value.getClass(), value));
+          insert.addBatch();
+          if(++migrated % 500 == 0) insert.executeBatch();
+        }
+        insert.executeBatch();
       }
-    });
+      stmt.execute("ALTER TABLE `key_value` RENAME TO `key_value_old`;");
+      stmt.execute("ALTER TABLE `key_value_migration` RENAME TO `key_value`;");
+      stmt.execute("DROP TABLE `key_value_old`;");
+      connection.commit();
+      pc.invalidateStatements();
+      hookManager.log(Level.INFO, prefix + "Migrated " + migrated + " values to binary values!");
+    } catch(SQLException | IOException e) {
+      connection.rollback();
+      throw e;
+    } finally {
+      connection.setAutoCommit(true);
+    }
   }
-}
\ No newline at end of file
+}
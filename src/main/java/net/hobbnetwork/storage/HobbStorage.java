@@ -1,12 +1,18 @@
 package net.hobbnetwork.storage;
 
 import lombok.Getter;
+import net.hobbnetwork.custom.BoundedCache;
 import net.hobbnetwork.listeners.Safeguards;
 import net.hobbnetwork.managers.HookManager;
+import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 /**
@@ -14,10 +20,22 @@ import java.util.logging.Level;
  */
 @Getter
 public class HobbStorage {
+  /**
+   * The default maximum amount of keys that are kept in memory
+   */
+  public static final long DEFAULT_CACHE_SIZE = 10_000;
   private boolean useInMemory = true;
-  private final HashMap<TypedKeyValue<?>, Object> data = new HashMap<>();
+  /**
+   * The in-memory cache in front of the {@link #storage}, see {@link #setCache(BoundedCache)} to replace it
+   */
+  private BoundedCache<TypedKeyValue<?>, Object> cache = new BoundedCache<>(DEFAULT_CACHE_SIZE);
+  /**
+   * The reads from the storage that are still running, so concurrent misses of the same key only read it once
+   */
+  private final ConcurrentHashMap<TypedKeyValue<?>, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
   private final HookManager hookManager;
   private Storage storage;
+  private WriteBehindQueue writeBehind;
   private String name;
   private String path;
 
@@ -27,8 +45,11 @@ public class HobbStorage {
    * @param type The {@link StorageType type} of storage to use
    * @param options The options to use for the storage <br>
    *                index 0: The name of the table/yml file<br>
-   *                index 1: The path to the file (if needed)<br>
+   *                index 1: The path to the file (if needed), for MYSQL this is the JDBC url including the user and password.
+   *                The url is never used as path, so the YML fallback and backups of MYSQL use the default path<br>
    *                index 2: "true" disables the in-memory storage (this is slower)<br>
+   *                index 3: The maximum amount of database connections (H2, SQLITE and MYSQL), default is 4<br>
+   *                index 4: "true" runs the database queries on virtual threads (H2, SQLITE and MYSQL)<br>
    */
   public HobbStorage(HookManager hookManager, StorageType type, String... options) {
     this.hookManager = hookManager;
@@ -38,18 +59,26 @@ public class HobbStorage {
     }
     new Safeguards(hookManager.getPlugin());
     this.name = options.length > 0 ? options[0] : "hobb-storage";
-    this.path = options.length > 1 ? options[1] : null;
+    String pathOption = options.length > 1 ? options[1] : null;
+    // The JDBC url of MYSQL holds the credentials, it must not end up in a directory name
+    this.path = type == StorageType.MYSQL ? null : pathOption;
     this.useInMemory = options.length > 2 && options[2].equalsIgnoreCase("true");
+    String poolSize = options.length > 3 ? options[3] : null;
+    String virtual = options.length > 4 ? options[4] : null;
     if(type == StorageType.H2) {
-      storage = new H2Storage(hookManager);
-    } else if(type == StorageType.YML) {
-      storage = new YMLStorage(hookManager, this.name, this.path);
+      storage = new H2Storage(hookManager, poolSize, virtual);
+    } else if(type == StorageType.SQLITE) {
+      storage = new SQLiteStorage(hookManager, this.name, this.path, poolSize, virtual);
+    } else if(type == StorageType.MYSQL) {
+      storage = new MySQLStorage(hookManager, pathOption, poolSize, virtual);
     } else {
       storage = new YMLStorage(hookManager, this.name, this.path);
     }
     boolean canInit = storage.init(this.name).join();
     if(canInit) return;
     hookManager.log(Level.SEVERE,"[HobbStorage] Could not initialize storage, falling back to YML");
+    // Stops the connection pool and threads of the failed storage
+    storage.close();
     storage = new YMLStorage(hookManager, this.name, this.path);
     boolean fallBackInit = storage.init(this.name).join();
     if(fallBackInit) return;
@@ -72,26 +101,169 @@ public class HobbStorage {
     return success.stream().allMatch((b) -> b);
   }
   /**
-   * This method gets the value of a key either from the data map or from the storage
+   * @return A copy of the values in the in-memory cache, changes to the map are not stored
+   * @deprecated The values are kept in the bounded {@link #getCache() cache}, use {@link #getValue(TypedKeyValue)} or the cache instead
+   */
+  @Deprecated
+  public HashMap<TypedKeyValue<?>, Object> getData() {
+    return new HashMap<>(cache.snapshot());
+  }
+  /**
+   * This method gets the value of a key either from the in-memory cache or from the storage<br>
+   * When the key is not cached, the value read from the storage is put in the cache (read-through)
    * @param tkv The key to get the value of
    * @return The value of the key
    */
   public CompletableFuture<Object> getValue(TypedKeyValue<?> tkv) {
-    return isUseInMemory() && data.containsKey(tkv)
-      ? CompletableFuture.completedFuture(data.get(tkv))
-      : storage.getValue(tkv);
+    if(!isUseInMemory()) {
+      CompletableFuture<Object> dirty = writeBehind != null ? writeBehind.getDirtyValue(tkv) : null;
+      return dirty != null ? dirty : storage.getValue(tkv);
+    }
+    Object cached = cache.get(tkv);
+    if(cached != null) return CompletableFuture.completedFuture(cached);
+    CompletableFuture<Object> load = new CompletableFuture<>();
+    CompletableFuture<Object> running = loading.putIfAbsent(tkv, load);
+    if(running != null) return running;
+    // A setValue between the first check and registering the load did not see the load, so check again now that it is registered
+    cached = cache.get(tkv);
+    CompletableFuture<Object> dirty = cached == null && writeBehind != null ? writeBehind.getDirtyValue(tkv) : null;
+    if(cached != null || dirty != null) {
+      loading.remove(tkv, load);
+      load.complete(cached != null ? cached : dirty.join());
+      return load;
+    }
+    storage.getValue(tkv).whenComplete((value, e) -> {
+      // Only cache the value if no setValue happened while it was being read
+      if(loading.remove(tkv, load) && e == null) cache.put(tkv, value);
+      if(e != null) load.completeExceptionally(e);
+      else load.complete(value);
+    });
+    return load;
   }
   /**
-   * This method sets the value of a key, as well as updating the storage
+   * This method sets the value of a key, as well as updating the storage<br>
+   * When write-behind is enabled, the storage is updated in the next batch instead
    * @param tkv The key to set the value of
    * @param value The value to set
+   * @see #enableWriteBehind(long, int)
    */
   public CompletableFuture<Boolean> setValue(TypedKeyValue<?> tkv, Object value) {
-    if(isUseInMemory()) data.put(tkv, value);
-    return storage.setValue(tkv, value);
+    if(isUseInMemory()) {
+      loading.remove(tkv);
+      cache.put(tkv, value);
+    }
+    return writeBehind != null
+      ? writeBehind.enqueue(tkv, value)
+      : storage.setValue(tkv, value);
+  }
+  /**
+   * This method gets the values of multiple keys, e.g. a whole player profile, in a single round trip.<br>
+   * Keys that are cached or waiting to be written are answered from memory,
+   * all other keys are read with one {@link Storage#getValues(Collection)} call and then cached
+   * @param keys The keys to get the values of
+   * @return The values per key, keys without a value are not in the map
+   */
+  public CompletableFuture<Map<TypedKeyValue<?>, Object>> getValues(Collection<? extends TypedKeyValue<?>> keys) {
+    Map<TypedKeyValue<?>, Object> results = new HashMap<>(keys.size());
+    List<TypedKeyValue<?>> missing = new ArrayList<>();
+    // The loads registered in the same way as getValue, so a setValue during the read is not overwritten
+    Map<TypedKeyValue<?>, CompletableFuture<Object>> loads = new HashMap<>();
+    for(TypedKeyValue<?> tkv : keys) {
+      Object cached = isUseInMemory() ? cache.get(tkv) : null;
+      if(cached != null) {
+        results.put(tkv, cached);
+        continue;
+      }
+      CompletableFuture<Object> dirty = writeBehind != null ? writeBehind.getDirtyValue(tkv) : null;
+      if(dirty != null) {
+        Object value = dirty.join();
+        if(value != null) results.put(tkv, value);
+        continue;
+      }
+      if(isUseInMemory()) {
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        if(loading.putIfAbsent(tkv, load) == null) {
+          cached = cache.get(tkv);
+          if(cached != null) {
+            loading.remove(tkv, load);
+            load.complete(cached);
+            results.put(tkv, cached);
+            continue;
+          }
+          loads.put(tkv, load);
+        }
+      }
+      missing.add(tkv);
+    }
+    if(missing.isEmpty()) return CompletableFuture.completedFuture(results);
+    return storage.getValues(missing).whenComplete((loaded, e) -> loads.forEach((tkv, load) -> {
+      Object value = e == null ? loaded.get(tkv) : null;
+      // Only cache the value if no setValue happened while it was being read
+      if(loading.remove(tkv, load) && e == null) cache.put(tkv, value);
+      if(e != null) load.completeExceptionally(e);
+      else load.complete(value);
+    })).thenApply((loaded) -> {
+      results.putAll(loaded);
+      return results;
+    });
+  }
+  /**
+   * This method sets the values of multiple keys, as well as updating the storage in a single batch
+   * @param values The keys and the values to set, a null value removes the key
+   * @return Per key whether the value was set
+   */
+  public CompletableFuture<Map<TypedKeyValue<?>, Boolean>> setValues(Map<TypedKeyValue<?>, Object> values) {
+    if(isUseInMemory()) values.forEach((tkv, value) -> {
+      loading.remove(tkv);
+      cache.put(tkv, value);
+    });
+    if(writeBehind == null) return storage.setValues(values);
+    Map<TypedKeyValue<?>, Boolean> results = new HashMap<>(values.size());
+    CompletableFuture<?>[] futures = values.entrySet().stream()
+      .map((e) -> writeBehind.enqueue(e.getKey(), e.getValue()).thenAccept((suc) -> {
+        synchronized(results) {
+          results.put(e.getKey(), suc);
+        }
+      }))
+      .toArray(CompletableFuture[]::new);
+    return CompletableFuture.allOf(futures).thenApply((v) -> results);
+  }
+  /**
+   * This method replaces the in-memory cache, e.g. to change its size, weigh the values or let them expire.
+   * The entries of the previous cache are not copied
+   * @param cache The new cache to use
+   */
+  public void setCache(@NotNull BoundedCache<TypedKeyValue<?>, Object> cache) {
+    this.cache = cache;
+    loading.clear();
+  }
+  /**
+   * This method enables write-behind, after which {@link #setValue(TypedKeyValue, Object)} no longer writes every key on its own.
+   * Instead, writes to the same key are coalesced and written in batches using {@link Storage#setValues(java.util.Map)},
+   * either every flushIntervalMillis or as soon as maxDirtyKeys keys are waiting. Calling it again replaces the previous settings
+   * @param flushIntervalMillis The time between two batches in milliseconds
+   * @param maxDirtyKeys The amount of waiting keys that triggers a batch right away
+   */
+  public void enableWriteBehind(long flushIntervalMillis, int maxDirtyKeys) {
+    if(storage == null) return;
+    WriteBehindQueue previous = this.writeBehind;
+    this.writeBehind = new WriteBehindQueue(hookManager, storage, flushIntervalMillis, maxDirtyKeys);
+    if(previous != null) previous.close();
+  }
+  /**
+   * This method writes all keys that are waiting in the write-behind queue
+   * @return A future that completes once the keys are written, or right away if write-behind is disabled
+   */
+  public CompletableFuture<Void> flush() {
+    return writeBehind != null ? writeBehind.flush() : CompletableFuture.completedFuture(null);
   }
 
+  /**
+   * This method writes all keys that are waiting in the write-behind queue and closes the storage
+   */
   public void close() {
+    if(writeBehind != null) writeBehind.close();
+    hookManager.log(Level.FINEST, "[HobbStorage] Closing " + name + " with " + cache);
     storage.close();
   }
 
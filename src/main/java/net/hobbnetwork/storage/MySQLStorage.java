@@ -0,0 +1,97 @@
+package net.hobbnetwork.storage;
+
+import net.hobbnetwork.managers.HookManager;
+import net.hobbnetwork.utils.LogUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class stores the values in a MySQL (or MariaDB) database, so multiple servers can share them.<br>
+ * Batches are written as multi-row upserts, which needs one round trip per {@value #MAX_UPSERT_ROWS} keys instead of one per key.<br>
+ * Any database that understands the MySQL dialect can be used, e.g. {@code jdbc:h2:mem:test;MODE=MySQL} to test without a MySQL server
+ */
+public class MySQLStorage extends SQLStorage {
+  private static final String UPSERT_SUFFIX = " ON DUPLICATE KEY UPDATE `value` = VALUES(`value`);";
+  private static final String CREATE_SQL = "CREATE TABLE IF NOT EXISTS `key_value` (`key` VARCHAR(255) NOT NULL PRIMARY KEY, `value` LONGBLOB NOT NULL);";
+  /**
+   * The largest amount of rows written by one upsert, larger batches are split into multiple upserts
+   */
+  private static final int MAX_UPSERT_ROWS = 128;
+
+  /**
+   * This constructor creates a new MySQLStorage object with its own connection pool and executor
+   * @param hookManager The HookManager object
+   * @param jdbcUrl The JDBC url of the database including the user and password,
+   *                e.g. {@code jdbc:mysql://localhost:3306/hobb?user=hobb&password=secret}
+   * @param options The options to use for the storage <br>
+   *                index 0: The maximum amount of connections in the pool, default is 4<br>
+   *                index 1: "true" runs the queries on virtual threads instead of a fixed pool of platform threads<br>
+   */
+  public MySQLStorage(HookManager hookManager, @Nullable String jdbcUrl, String... options) {
+    super(hookManager, "mysql", false, options);
+    if(jdbcUrl == null || !jdbcUrl.startsWith("jdbc:")) {
+      hookManager.log(LogUtil.LogLevel.CRASH, prefix + "Initializing the MySQL Database failed, '" + jdbcUrl + "' is not a JDBC url!");
+      return;
+    }
+    open(getDriver(jdbcUrl), () -> DriverManager.getConnection(jdbcUrl));
+  }
+
+  private static @NotNull String getDriver(@NotNull String jdbcUrl) {
+    if(jdbcUrl.startsWith("jdbc:mariadb:")) return "org.mariadb.jdbc.Driver";
+    if(jdbcUrl.startsWith("jdbc:h2:")) return "org.h2.Driver";
+    return "com.mysql.cj.jdbc.Driver";
+  }
+
+  @Override
+  protected @NotNull String getUpsertSQL() {
+    return getUpsertSQL(1);
+  }
+
+  /**
+   * @param rows The amount of rows to write
+   * @return The upsert of the given amount of rows
+   */
+  private static String getUpsertSQL(int rows) {
+    StringBuilder sql = new StringBuilder("INSERT INTO `key_value` (`key`, `value`) VALUES ");
+    for(int i = 0; i < rows; i++) sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+    // VALUES(`value`) is deprecated by MySQL 8.0.20 in favour of row aliases, but MariaDB and H2 only understand this form
+    return sql.append(UPSERT_SUFFIX).toString();
+  }
+
+  @Override
+  protected @NotNull String getCreateTableSQL() {
+    return CREATE_SQL;
+  }
+
+  /**
+   * This method writes the rows as multi-row upserts of up to {@value #MAX_UPSERT_ROWS} rows.<br>
+   * Like the IN queries of the reads, the amount of rows is rounded up to a power of two by repeating the last row,
+   * so only a handful of different statements end up in the statement cache
+   * @return {@link Statement#SUCCESS_NO_INFO} for every row, MySQL only reports the update count of the whole statement
+   */
+  @Override
+  protected int[] executeUpserts(@NotNull PooledConnection pc, @NotNull List<Map.Entry<String, byte[]>> rows) throws SQLException {
+    for(int from = 0; from < rows.size(); from += MAX_UPSERT_ROWS) {
+      List<Map.Entry<String, byte[]>> chunk = rows.subList(from, Math.min(rows.size(), from + MAX_UPSERT_ROWS));
+      int params = roundUpToPowerOfTwo(chunk.size());
+      PreparedStatement upsert = pc.prepare(PooledConnection.Operation.UPSERT, getUpsertSQL(params));
+      for(int i = 0; i < params; i++) {
+        Map.Entry<String, byte[]> row = chunk.get(Math.min(i, chunk.size() - 1));
+        upsert.setString(i * 2 + 1, row.getKey());
+        upsert.setBytes(i * 2 + 2, row.getValue());
+      }
+      upsert.executeUpdate();
+    }
+    int[] counts = new int[rows.size()];
+    Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+    return counts;
+  }
+}
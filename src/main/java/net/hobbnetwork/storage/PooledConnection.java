@@ -0,0 +1,112 @@
+package net.hobbnetwork.storage;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+
+/**
+ * A {@link Connection} borrowed from a {@link ConnectionPool}.<br>
+ * Closing this object gives the connection back to the pool instead of closing the underlying connection.<br>
+ * Every connection keeps a cache of {@link PreparedStatement}s, so the same query is only parsed and planned once per connection.
+ */
+public class PooledConnection implements AutoCloseable {
+  private final ConnectionPool pool;
+  @Getter private final Connection connection;
+  /**
+   * The statements prepared on this connection, only the current borrower of the connection touches this map
+   */
+  private final HashMap<StatementKey, PreparedStatement> statements = new HashMap<>();
+  @Getter private long lastUsed;
+  private boolean released = false;
+
+  PooledConnection(@NotNull ConnectionPool pool, @NotNull Connection connection) {
+    this.pool = pool;
+    this.connection = connection;
+    this.lastUsed = System.nanoTime();
+  }
+
+  void touch() {
+    this.lastUsed = System.nanoTime();
+  }
+
+  void reuse() {
+    this.released = false;
+  }
+
+  /**
+   * This method gets a cached {@link PreparedStatement} for the given query or prepares it if this connection has not seen it yet.<br>
+   * <b>NOTE:</b> The statement is owned by this connection, callers should not close it, only the {@link java.sql.ResultSet}s it returns
+   * @param operation The kind of query, this is part of the cache key
+   * @param sql The query to prepare
+   * @return The prepared statement with its parameters cleared
+   * @throws SQLException If the statement could not be prepared
+   */
+  @NotNull public PreparedStatement prepare(@NotNull Operation operation, @NotNull String sql) throws SQLException {
+    StatementKey key = new StatementKey(operation, sql);
+    PreparedStatement pstmt = statements.get(key);
+    if(pstmt != null && !pstmt.isClosed()) {
+      pstmt.clearParameters();
+      return pstmt;
+    }
+    pstmt = connection.prepareStatement(sql);
+    statements.put(key, pstmt);
+    return pstmt;
+  }
+  /**
+   * @return The amount of statements cached for this connection
+   */
+  public int getCachedStatements() {
+    return statements.size();
+  }
+  /**
+   * This method closes and forgets all cached statements of this connection
+   */
+  public void invalidateStatements() {
+    for(PreparedStatement pstmt : statements.values()) {
+      try {
+        pstmt.close();
+      } catch(SQLException ignored) {
+        // The statement is thrown away anyway
+      }
+    }
+    statements.clear();
+  }
+
+  /**
+   * This method closes the cached statements and the underlying connection, it is only used by the {@link ConnectionPool}
+   */
+  void discard() {
+    invalidateStatements();
+    try {
+      connection.close();
+    } catch(SQLException ignored) {
+      // The connection is thrown away anyway
+    }
+  }
+
+  /**
+   * This method gives the connection back to the {@link ConnectionPool} it was borrowed from
+   */
+  @Override
+  public void close() {
+    if(released) return;
+    released = true;
+    pool.release(this);
+  }
+
+  /**
+   * The kinds of queries that are cached by {@link #prepare(Operation, String)}
+   */
+  public enum Operation {
+    UPSERT,
+    DELETE,
+    SELECT,
+    TRUNCATE
+  }
+
+  private record StatementKey(Operation operation, String sql) {}
+}
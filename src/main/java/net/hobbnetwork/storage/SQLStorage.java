@@ -0,0 +1,346 @@
+package net.hobbnetwork.storage;
+
+import lombok.Getter;
+import net.hobbnetwork.custom.Storable;
+import net.hobbnetwork.managers.HookManager;
+import net.hobbnetwork.utils.LogUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
+
+/**
+ * This class is the base of the storages that keep their values in a `key_value` table of a SQL database.<br>
+ * It owns a {@link ConnectionPool} with cached statements and the executors the queries run on,
+ * values are encoded using the {@link CodecRegistry}. The subclasses only provide the SQL of their dialect.<br>
+ * Reads run on a pool of threads, writes run on the same pool or, if the database only allows a single writer, on a single thread.
+ */
+public abstract class SQLStorage extends Storage {
+  protected static final int DEFAULT_POOL_SIZE = 4;
+  private static final long POOL_TIMEOUT_MILLIS = 10_000;
+  private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+  private static final String DELETE_SQL = "DELETE FROM `key_value` WHERE `key` = ?;";
+  private static final String SELECT_SQL = "SELECT `value` FROM `key_value` WHERE `key` = ?;";
+  /**
+   * The largest amount of keys read by one IN (...) query, larger reads are split into multiple queries
+   */
+  protected static final int MAX_IN_SIZE = 256;
+  protected final HookManager hookManager;
+  /**
+   * The prefix of every log message, e.g. "[H2Storage] "
+   */
+  protected final String prefix;
+  /**
+   * The pool of connections to the database, its metrics can be used to monitor the storage latency
+   */
+  @Getter protected ConnectionPool pool;
+  @Getter protected final int poolSize;
+  protected final ExecutorService executor;
+  /**
+   * The executor that runs all writes, this is the {@link #executor} unless the storage uses a single writer thread
+   */
+  protected final ExecutorService writer;
+
+  /**
+   * This constructor creates the executors of the storage, the subclass then opens the pool using {@link #open(String, ConnectionPool.ConnectionFactory)}
+   * @param hookManager The HookManager object
+   * @param name The short name of the database, used for the thread names, e.g. "h2"
+   * @param singleWriter Whether all writes should run on one thread, for databases that only allow a single writer
+   * @param options The options to use for the storage <br>
+   *                index 0: The maximum amount of connections in the pool, default is 4<br>
+   *                index 1: "true" runs the queries on virtual threads instead of a fixed pool of platform threads<br>
+   */
+  protected SQLStorage(@NotNull HookManager hookManager, @NotNull String name, boolean singleWriter, String... options) {
+    this.hookManager = hookManager;
+    this.prefix = "[" + getClass().getSimpleName() + "] ";
+    int size = DEFAULT_POOL_SIZE;
+    if(options.length > 0 && options[0] != null) {
+      try {
+        size = Math.max(1, Integer.parseInt(options[0]));
+      } catch(NumberFormatException e) {
+        hookManager.log(Level.WARNING, prefix + "Invalid pool size '" + options[0] + "', using " + DEFAULT_POOL_SIZE);
+      }
+    }
+    this.poolSize = size;
+    boolean virtual = options.length > 1 && "true".equalsIgnoreCase(options[1]);
+    String threadName = "hobb-" + name + "-" + hookManager.getPlugin().getName();
+    this.executor = StorageThreads.newExecutor(threadName, poolSize, virtual);
+    this.writer = singleWriter ? StorageThreads.newExecutor(threadName + "-writer", 1, false) : executor;
+  }
+
+  /**
+   * This method loads the JDBC driver, creates the connection pool and the `key_value` table
+   * @param driver The class name of the JDBC driver
+   * @param factory The factory that opens new connections to the database
+   */
+  protected void open(@NotNull String driver, @NotNull ConnectionPool.ConnectionFactory factory) {
+    try {
+      Class.forName(driver);
+      pool = new ConnectionPool(getClass().getSimpleName(), poolSize, POOL_TIMEOUT_MILLIS, factory);
+      String couldInit = init("hobb-storage").join() ? "Successfully initialized" : "Could not Initialize";
+      hookManager.log(LogUtil.LogLevel.DEBUG, prefix + couldInit + " the database!");
+    } catch (Exception e) {
+      hookManager.log(LogUtil.LogLevel.CRASH, prefix + "Initializing the database failed!", e);
+    }
+  }
+
+  /**
+   * @return The query that inserts a row or replaces the value of an existing row, with the key and the value as parameters
+   */
+  @NotNull protected abstract String getUpsertSQL();
+  /**
+   * @return The query that creates the `key_value` table if it does not exist
+   */
+  @NotNull protected abstract String getCreateTableSQL();
+  /**
+   * @return The query that removes all rows of the `key_value` table
+   */
+  @NotNull protected String getClearSQL() {
+    return "TRUNCATE TABLE `key_value`;";
+  }
+  /**
+   * This method is called after the table was created or found, e.g. to migrate an old table
+   * @param pc The connection the table was created with
+   * @param stmt A statement of the connection that can be reused
+   */
+  protected void afterCreateTable(@NotNull PooledConnection pc, @NotNull Statement stmt) throws SQLException, IOException {}
+  /**
+   * This method writes the given rows inside the running transaction of the connection.<br>
+   * By default, every row is added to one JDBC batch of the {@link #getUpsertSQL()} statement
+   * @param pc The connection to write with
+   * @param rows The keys and their encoded values
+   * @return The update count per row, in the order of the rows
+   */
+  protected int[] executeUpserts(@NotNull PooledConnection pc, @NotNull List<Map.Entry<String, byte[]>> rows) throws SQLException {
+    PreparedStatement upsert = pc.prepare(PooledConnection.Operation.UPSERT, getUpsertSQL());
+    for(Map.Entry<String, byte[]> row : rows) {
+      upsert.setString(1, row.getKey());
+      upsert.setBytes(2, row.getValue());
+      upsert.addBatch();
+    }
+    return upsert.executeBatch();
+  }
+
+  @Override
+  public CompletableFuture<Boolean> init(@NotNull String tableName, String... useless) {
+    return createTable(tableName);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> setValue(@NotNull TypedKeyValue<?> tkv, @Nullable Object value) {
+    return CompletableFuture.supplyAsync(() -> {
+      try (PooledConnection pc = pool.acquire()) {
+        PreparedStatement pstmt = value == null
+          ? pc.prepare(PooledConnection.Operation.DELETE, DELETE_SQL)
+          : pc.prepare(PooledConnection.Operation.UPSERT, getUpsertSQL());
+        pstmt.setString(1, tkv.getKey());
+        if(value != null) {
+          pstmt.setBytes(2, CodecRegistry.encode(tkv.getType(), value));
+        }
+        return pstmt.executeUpdate() != 0;
+      } catch (Exception e) {
+        hookManager.log(Level.SEVERE, prefix + "Could not set value!\t"+tkv.getKey()+"\n", e);
+        return false;
+      }
+    }, writer);
+  }
+
+  @Override
+  public CompletableFuture<Object> getValue(@NotNull TypedKeyValue<?> tkv) {
+    return CompletableFuture.supplyAsync(() -> {
+      try (PooledConnection pc = pool.acquire()) {
+        PreparedStatement pstmt = pc.prepare(PooledConnection.Operation.SELECT, SELECT_SQL);
+        pstmt.setString(1, tkv.getKey());
+        byte[] res;
+        try (ResultSet rs = pstmt.executeQuery()) {
+          if(!rs.next()) return null;
+          res = rs.getBytes("value");
+        }
+        return decode(tkv, res);
+      } catch (Exception e) {
+        hookManager.log(Level.SEVERE, prefix + "Could not get value!\t"+tkv.getKey()+"\n", e);
+        return null;
+      }
+    }, executor);
+  }
+
+  /**
+   * This method gets the values of multiple keys using a single {@code IN (...)} query per {@value #MAX_IN_SIZE} keys.<br>
+   * The amount of parameters is rounded up to a power of two, so only a handful of different statements end up in the statement cache
+   * @param keys The keys to get the values of
+   * @return The values per key, keys without a value are not in the map
+   */
+  @Override
+  public CompletableFuture<Map<TypedKeyValue<?>, Object>> getValues(@NotNull Collection<? extends TypedKeyValue<?>> keys) {
+    if(keys.isEmpty()) return CompletableFuture.completedFuture(new HashMap<>());
+    return CompletableFuture.supplyAsync(() -> {
+      Map<TypedKeyValue<?>, Object> results = new HashMap<>(keys.size());
+      Map<String, TypedKeyValue<?>> byKey = new HashMap<>(keys.size());
+      keys.forEach((tkv) -> byKey.put(tkv.getKey(), tkv));
+      List<String> remaining = new ArrayList<>(byKey.keySet());
+      try (PooledConnection pc = pool.acquire()) {
+        for(int from = 0; from < remaining.size(); from += MAX_IN_SIZE) {
+          List<String> chunk = remaining.subList(from, Math.min(remaining.size(), from + MAX_IN_SIZE));
+          int params = roundUpToPowerOfTwo(chunk.size());
+          PreparedStatement pstmt = pc.prepare(PooledConnection.Operation.SELECT, getSelectInSQL(params));
+          // Unused parameters repeat the last key, which does not change the result
+          for(int i = 0; i < params; i++) pstmt.setString(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+          try (ResultSet rs = pstmt.executeQuery()) {
+            while(rs.next()) {
+              TypedKeyValue<?> tkv = byKey.get(rs.getString("key"));
+              if(tkv == null) continue;
+              try {
+                Object value = decode(tkv, rs.getBytes("value"));
+                if(value != null) results.put(tkv, value);
+              } catch(Exception e) {
+                hookManager.log(Level.SEVERE, prefix + "Could not get value!\t"+tkv.getKey()+"\n", e);
+              }
+            }
+          }
+        }
+      } catch (Exception e) {
+        hookManager.log(Level.SEVERE, prefix + "Could not get " + keys.size() + " values!", e);
+      }
+      return results;
+    }, executor);
+  }
+
+  protected static int roundUpToPowerOfTwo(int n) {
+    int rounded = Integer.highestOneBit(Math.max(1, n));
+    return rounded < n ? rounded << 1 : rounded;
+  }
+
+  private static String getSelectInSQL(int params) {
+    StringBuilder sql = new StringBuilder("SELECT `key`, `value` FROM `key_value` WHERE `key` IN (");
+    for(int i = 0; i < params; i++) sql.append(i == 0 ? "?" : ", ?");
+    return sql.append(");").toString();
+  }
+
+  /**
+   * This method converts a value read from the database to the type of the key
+   * @param tkv The key the value belongs to
+   * @param bytes The value as read from the database, encoded by the {@link CodecRegistry}
+   * @return The value as the type of the key
+   * @throws IOException If the bytes could not be decoded
+   */
+  private static Object decode(@NotNull TypedKeyValue<?> tkv, byte[] bytes) throws IOException {
+    Object res = CodecRegistry.decode(bytes);
+    if(res == null) return null;
+    // If the type implements Storable, read it from the string without reflection, otherwise cast it to the type
+    return (Storable.class.isAssignableFrom(tkv.getType()))
+      ? tkv.fromStorableString(res.toString())
+      : tkv.getType().cast(res);
+  }
+
+  /**
+   * This method sets the values of multiple keys as one batch inside a single transaction.<br>
+   * If the transaction fails, it is rolled back and none of the keys are set
+   * @param values The keys and the values to set, a null value removes the key
+   * @return Per key whether the value was set
+   */
+  @Override
+  public CompletableFuture<Map<TypedKeyValue<?>, Boolean>> setValues(@NotNull Map<TypedKeyValue<?>, Object> values) {
+    if(values.isEmpty()) return CompletableFuture.completedFuture(new HashMap<>());
+    return CompletableFuture.supplyAsync(() -> {
+      Map<TypedKeyValue<?>, Boolean> results = new HashMap<>(values.size());
+      List<TypedKeyValue<?>> merged = new ArrayList<>(values.size());
+      List<Map.Entry<String, byte[]>> rows = new ArrayList<>(values.size());
+      List<TypedKeyValue<?>> deleted = new ArrayList<>();
+      try (PooledConnection pc = pool.acquire()) {
+        Connection connection = pc.getConnection();
+        connection.setAutoCommit(false);
+        try {
+          PreparedStatement delete = pc.prepare(PooledConnection.Operation.DELETE, DELETE_SQL);
+          for(Map.Entry<TypedKeyValue<?>, Object> e : values.entrySet()) {
+            Object value = e.getValue();
+            if(value == null) {
+              delete.setString(1, e.getKey().getKey());
+              delete.addBatch();
+              deleted.add(e.getKey());
+            } else {
+              rows.add(Map.entry(e.getKey().getKey(), CodecRegistry.encode(e.getKey().getType(), value)));
+              merged.add(e.getKey());
+            }
+          }
+          int[] mergeCounts = merged.isEmpty() ? new int[0] : executeUpserts(pc, rows);
+          int[] deleteCounts = deleted.isEmpty() ? new int[0] : delete.executeBatch();
+          connection.commit();
+          for(int i = 0; i < merged.size(); i++) results.put(merged.get(i), isBatchSuccess(mergeCounts, i));
+          for(int i = 0; i < deleted.size(); i++) results.put(deleted.get(i), isBatchSuccess(deleteCounts, i));
+        } catch(Exception e) {
+          connection.rollback();
+          // The statements could still hold a half-built batch, so they are not reused
+          pc.invalidateStatements();
+          throw e;
+        } finally {
+          connection.setAutoCommit(true);
+        }
+      } catch (Exception e) {
+        hookManager.log(Level.SEVERE, prefix + "Could not set " + values.size() + " values in one batch!", e);
+        values.keySet().forEach((tkv) -> results.put(tkv, false));
+      }
+      return results;
+    }, writer);
+  }
+
+  private static boolean isBatchSuccess(int[] counts, int i) {
+    return i < counts.length && (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> removeValue(@NotNull TypedKeyValue<?> tkv) {
+    return setValue(tkv, null);
+  }
+
+  /**
+   * This method waits for the pending queries to finish and then closes all connections of the pool,
+   * which also closes the statements they cached
+   */
+  @Override
+  public void close() {
+    boolean finished = writer == executor || StorageThreads.shutdown(writer, SHUTDOWN_TIMEOUT_MILLIS);
+    if(!StorageThreads.shutdown(executor, SHUTDOWN_TIMEOUT_MILLIS) || !finished)
+      hookManager.log(Level.WARNING, prefix + "Not all queries finished before closing!");
+    if(pool == null) return;
+    hookManager.log(Level.FINEST, prefix + "Closing " + pool);
+    pool.close();
+  }
+
+  public CompletableFuture<Boolean> clear() {
+    return CompletableFuture.supplyAsync(() -> {
+      try (PooledConnection pc = pool.acquire()) {
+        return pc.prepare(PooledConnection.Operation.TRUNCATE, getClearSQL()).executeUpdate() != 0;
+      } catch (SQLException e) {
+        hookManager.log(Level.SEVERE, prefix + "Could not clear table!", e);
+        return false;
+      }
+    }, writer);
+  }
+
+  public CompletableFuture<Boolean> createTable(String tableName) {
+    if(pool == null) return CompletableFuture.completedFuture(false);
+    return CompletableFuture.supplyAsync(() -> {
+      try(PooledConnection pc = pool.acquire();
+          Statement stmt = pc.getConnection().createStatement()) {
+        boolean suc = !stmt.execute(getCreateTableSQL());
+        int rows = stmt.getUpdateCount();
+        if(rows == 1) hookManager.log(Level.FINE, prefix + "Creating table `key_value`");
+        if(rows == 0) hookManager.log(Level.FINEST, prefix + "`key_value` table was found!");
+        afterCreateTable(pc, stmt);
+        return suc;
+      } catch(SQLException | IOException e) {
+        hookManager.log(LogUtil.LogLevel.CRASH, prefix + "Could not create table `" + tableName + "` ", e);
+        return false;
+      }
+    }, writer);
+  }
+}
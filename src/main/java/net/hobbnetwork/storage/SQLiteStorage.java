@@ -0,0 +1,92 @@
+package net.hobbnetwork.storage;
+
+import net.hobbnetwork.managers.HookManager;
+import net.hobbnetwork.utils.LogUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * This class stores the values in a SQLite file in the data folder of the plugin.<br>
+ * The database runs in WAL mode, so the pooled readers never block the writer and the writer never blocks the readers.
+ * SQLite only allows one writer at a time, so all writes run on a single thread instead of waiting for each other's locks.
+ */
+public class SQLiteStorage extends SQLStorage {
+  private static final String UPSERT_SQL = "INSERT INTO `key_value` (`key`, `value`) VALUES (?, ?) " +
+    "ON CONFLICT(`key`) DO UPDATE SET `value` = excluded.`value`;";
+  private static final String CREATE_SQL = "CREATE TABLE IF NOT EXISTS `key_value` (`key` TEXT NOT NULL PRIMARY KEY, `value` BLOB NOT NULL) WITHOUT ROWID;";
+  private static final String CLEAR_SQL = "DELETE FROM `key_value`;";
+  /**
+   * The time a connection waits for a lock of another process before failing, in milliseconds
+   */
+  private static final int BUSY_TIMEOUT_MILLIS = 5_000;
+
+  /**
+   * This constructor creates a new SQLiteStorage object with its own connection pool, reader executor and writer thread
+   * @param hookManager The HookManager object
+   * @param name The name of the database file, without the .db extension
+   * @param path The folder of the database file inside the data folder of the plugin, default is "database"
+   * @param options The options to use for the storage <br>
+   *                index 0: The maximum amount of connections in the pool, default is 4<br>
+   *                index 1: "true" runs the reads on virtual threads instead of a fixed pool of platform threads<br>
+   */
+  public SQLiteStorage(HookManager hookManager, @NotNull String name, @Nullable String path, String... options) {
+    super(hookManager, "sqlite", true, options);
+    File databaseFile;
+    try {
+      databaseFile = getDatabaseFile(hookManager, name, path);
+    } catch(IllegalStateException e) {
+      hookManager.log(LogUtil.LogLevel.CRASH, prefix + "Initializing the SQLite Database failed!", e);
+      return;
+    }
+    String jdbcUrl = "jdbc:sqlite:" + databaseFile.getAbsolutePath();
+    open("org.sqlite.JDBC", () -> openConnection(jdbcUrl));
+  }
+
+  private static @NotNull File getDatabaseFile(HookManager hookManager, String name, @Nullable String path) {
+    if (!hookManager.isHooked()) throw new IllegalStateException("SQLiteStorage is not hooked!");
+    File databaseDir = new File(hookManager.getPlugin().getDataFolder(), path != null ? path : "database");
+    if (!databaseDir.exists() && !databaseDir.mkdirs()) {
+      throw new IllegalStateException("Failed to create database directory: " + databaseDir.getPath());
+    }
+    return new File(databaseDir, name + ".db");
+  }
+
+  /**
+   * This method opens a connection and sets it up for concurrent use.<br>
+   * The journal mode is stored in the file itself, the other settings only apply to this connection
+   */
+  private static Connection openConnection(String jdbcUrl) throws SQLException {
+    Connection connection = DriverManager.getConnection(jdbcUrl);
+    try(Statement stmt = connection.createStatement()) {
+      stmt.execute("PRAGMA journal_mode=WAL;");
+      // In WAL mode a commit is still atomic with NORMAL, only the last commits can be lost on a power failure
+      stmt.execute("PRAGMA synchronous=NORMAL;");
+      stmt.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT_MILLIS + ";");
+    } catch(SQLException e) {
+      connection.close();
+      throw e;
+    }
+    return connection;
+  }
+
+  @Override
+  protected @NotNull String getUpsertSQL() {
+    return UPSERT_SQL;
+  }
+
+  @Override
+  protected @NotNull String getCreateTableSQL() {
+    return CREATE_SQL;
+  }
+
+  @Override
+  protected @NotNull String getClearSQL() {
+    return CLEAR_SQL;
+  }
+}
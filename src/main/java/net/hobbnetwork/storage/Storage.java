@@ -3,6 +3,9 @@ package net.hobbnetwork.storage;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 public abstract class Storage {
@@ -10,5 +13,42 @@ public abstract class Storage {
   abstract public CompletableFuture<Boolean> setValue(@NotNull TypedKeyValue<?> key, @Nullable Object value);
   @Nullable abstract public CompletableFuture<Object> getValue(@NotNull TypedKeyValue<?> key);
   abstract public CompletableFuture<Boolean> removeValue(@NotNull TypedKeyValue<?> key);
+  /**
+   * This method gets the values of multiple keys at once.<br>
+   * By default, this calls {@link #getValue(TypedKeyValue)} for every key,
+   * storages that can read multiple keys more efficiently should override it
+   * @param keys The keys to get the values of
+   * @return The values per key, keys without a value are not in the map
+   */
+  public CompletableFuture<Map<TypedKeyValue<?>, Object>> getValues(@NotNull Collection<? extends TypedKeyValue<?>> keys) {
+    Map<TypedKeyValue<?>, Object> results = new HashMap<>();
+    CompletableFuture<?>[] futures = keys.stream()
+      .map((tkv) -> getValue(tkv).thenAccept((value) -> {
+        if(value == null) return;
+        synchronized(results) {
+          results.put(tkv, value);
+        }
+      }))
+      .toArray(CompletableFuture[]::new);
+    return CompletableFuture.allOf(futures).thenApply((v) -> results);
+  }
+  /**
+   * This method sets the values of multiple keys at once, a null value removes the key.<br>
+   * By default, this calls {@link #setValue(TypedKeyValue, Object)} for every key,
+   * storages that can write multiple keys more efficiently should override it
+   * @param values The keys and the values to set
+   * @return Per key whether the value was set
+   */
+  public CompletableFuture<Map<TypedKeyValue<?>, Boolean>> setValues(@NotNull Map<TypedKeyValue<?>, Object> values) {
+    Map<TypedKeyValue<?>, Boolean> results = new HashMap<>();
+    CompletableFuture<?>[] futures = values.entrySet().stream()
+      .map((e) -> setValue(e.getKey(), e.getValue()).thenAccept((suc) -> {
+        synchronized(results) {
+          results.put(e.getKey(), suc);
+        }
+      }))
+      .toArray(CompletableFuture[]::new);
+    return CompletableFuture.allOf(futures).thenApply((v) -> results);
+  }
   abstract public void close();
 }
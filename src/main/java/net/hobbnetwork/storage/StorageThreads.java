@@ -0,0 +1,53 @@
+package net.hobbnetwork.storage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class creates the executors that the storage classes run their I/O on.<br>
+ * The threads are named after their storage, so they are easy to recognise in thread dumps and profilers,
+ * and they never compete with the JVM common pool that other plugins use for parallel streams.
+ */
+public class StorageThreads {
+  /**
+   * This method creates an executor for storage I/O
+   * @param name The name prefix of the threads, e.g. "hobb-h2"
+   * @param threads The amount of platform threads to use, ignored when virtual threads are used
+   * @param virtual Whether to start a new virtual thread for every task instead of using a fixed pool of platform threads
+   * @return The executor, which should be shut down using {@link #shutdown(ExecutorService, long)}
+   */
+  @NotNull static public ExecutorService newExecutor(@NotNull String name, int threads, boolean virtual) {
+    if(virtual) return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    ThreadFactory factory = Thread.ofPlatform().name(name + "-", 0).daemon(true).factory();
+    return Executors.newFixedThreadPool(Math.max(1, threads), factory);
+  }
+  /**
+   * This method creates a single threaded scheduler for delayed and periodic storage work, e.g. flushing
+   * @param name The name of the thread
+   * @return The scheduler, which should be shut down using {@link #shutdown(ExecutorService, long)}
+   */
+  @NotNull static public ScheduledExecutorService newScheduler(@NotNull String name) {
+    return Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name(name).daemon(true).factory());
+  }
+  /**
+   * This method shuts an executor down and waits for the already submitted tasks to finish
+   * @param executor The executor to shut down
+   * @param timeoutMillis The maximum time to wait for the tasks to finish
+   * @return Whether all tasks finished in time
+   */
+  static public boolean shutdown(@NotNull ExecutorService executor, long timeoutMillis) {
+    executor.shutdown();
+    try {
+      if(executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) return true;
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    executor.shutdownNow();
+    return false;
+  }
+}
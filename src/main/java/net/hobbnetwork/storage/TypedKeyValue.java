@@ -2,12 +2,17 @@ package net.hobbnetwork.storage;
 
 import lombok.Getter;
 import lombok.Setter;
+import net.hobbnetwork.custom.Storable;
+import net.hobbnetwork.custom.StorableFactory;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
@@ -21,6 +26,10 @@ public class TypedKeyValue<T> {
   private Class<T> type;
   private Supplier<T> defaultValue;
   private String key;
+  /**
+   * The decoder of {@link Storable} values of this key, null uses the decoder of the {@link StorableFactory}
+   */
+  @Nullable private Function<String, ? extends T> decoder;
   /**
    * This constructor creates a new TypedKeyValue object
    * @param key The name of the key
@@ -28,9 +37,32 @@ public class TypedKeyValue<T> {
    * @param defaultValue The default value of the key
    */
   public TypedKeyValue(String key, Class<T> type, Supplier<T> defaultValue){
+    this(key, type, defaultValue, null);
+  }
+  /**
+   * This constructor creates a new TypedKeyValue object for a {@link Storable} value with its own decoder
+   * @param key The name of the key
+   * @param type The class of the value
+   * @param defaultValue The default value of the key
+   * @param decoder The function that turns the string form of the value (see {@link Storable#toString()}) back into a value,
+   *                or null to use the decoder registered in the {@link StorableFactory}
+   */
+  public TypedKeyValue(String key, Class<T> type, Supplier<T> defaultValue, @Nullable Function<String, ? extends T> decoder){
     this.key = key;
     this.type = type;
     this.defaultValue = defaultValue;
+    this.decoder = decoder;
+  }
+
+  /**
+   * This method turns the stored string form of a {@link Storable} value back into a value of this key.<br>
+   * It uses the decoder of this key if it has one, otherwise the cached decoder of the {@link StorableFactory}
+   * @param s The string form of the value
+   * @return The value
+   */
+  @Nullable public T fromStorableString(@NotNull String s) {
+    Function<String, ? extends T> d = decoder != null ? decoder : StorableFactory.get(type);
+    return d.apply(s);
   }
 
   public CompletableFuture<Boolean> initDefault(String key, Storage storage) {
@@ -0,0 +1,17 @@
+package net.hobbnetwork.storage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This interface writes values of one type to a compact binary form and reads them back.<br>
+ * Codecs are registered in the {@link CodecRegistry} for the type of a {@link TypedKeyValue}.
+ * @param <T> The type of the values
+ */
+public interface ValueCodec<T> {
+  void write(@NotNull DataOutput out, @NotNull T value) throws IOException;
+  @NotNull T read(@NotNull DataInput in) throws IOException;
+}
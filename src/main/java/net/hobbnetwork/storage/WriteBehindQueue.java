@@ -0,0 +1,187 @@
+package net.hobbnetwork.storage;
+
+import lombok.Getter;
+import net.hobbnetwork.managers.HookManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * This class collects writes to a {@link Storage} and writes them in batches using {@link Storage#setValues(Map)}.<br>
+ * Multiple writes to the same {@link TypedKeyValue} before a flush are coalesced into a single write of the latest value,
+ * all callers of those writes receive the same future.<br>
+ * A flush happens every {@link #getFlushIntervalMillis()} milliseconds or as soon as {@link #getMaxDirtyKeys()} keys are dirty.
+ */
+public class WriteBehindQueue implements AutoCloseable {
+  private static final long SHUTDOWN_TIMEOUT_MILLIS = 30_000;
+  private final HookManager hookManager;
+  private final Storage storage;
+  @Getter private final long flushIntervalMillis;
+  @Getter private final int maxDirtyKeys;
+  private final ScheduledExecutorService scheduler;
+  private final Object lock = new Object();
+  private LinkedHashMap<TypedKeyValue<?>, Pending> dirty = new LinkedHashMap<>();
+  /**
+   * The batch that is being written, it stays readable until the write finished so reads never see the old value in the storage
+   */
+  private Map<TypedKeyValue<?>, Pending> inFlight = Map.of();
+  private boolean flushScheduled = false;
+  private boolean closed = false;
+  private final LongAdder writes = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder flushes = new LongAdder();
+
+  /**
+   * This constructor creates a new WriteBehindQueue and starts its periodic flush
+   * @param hookManager The HookManager object
+   * @param storage The storage to write the batches to
+   * @param flushIntervalMillis The time between two periodic flushes
+   * @param maxDirtyKeys The amount of dirty keys that triggers a flush right away
+   */
+  public WriteBehindQueue(@NotNull HookManager hookManager, @NotNull Storage storage, long flushIntervalMillis, int maxDirtyKeys) {
+    this.hookManager = hookManager;
+    this.storage = storage;
+    this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+    this.maxDirtyKeys = Math.max(1, maxDirtyKeys);
+    this.scheduler = StorageThreads.newScheduler("hobb-write-behind-" + hookManager.getPlugin().getName());
+    this.scheduler.scheduleWithFixedDelay(this::flushNow, this.flushIntervalMillis, this.flushIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * This method queues a write of a value, a null value removes the key
+   * @param tkv The key to set the value of
+   * @param value The value to set
+   * @return A future that completes once the batch containing this key has been written
+   */
+  public CompletableFuture<Boolean> enqueue(@NotNull TypedKeyValue<?> tkv, @Nullable Object value) {
+    CompletableFuture<Boolean> future;
+    boolean flush = false;
+    synchronized(lock) {
+      if(closed) return storage.setValue(tkv, value);
+      writes.increment();
+      Pending pending = dirty.get(tkv);
+      if(pending != null) {
+        pending.value = value;
+        coalesced.increment();
+        return pending.future;
+      }
+      future = new CompletableFuture<>();
+      dirty.put(tkv, new Pending(value, future));
+      if(dirty.size() >= maxDirtyKeys && !flushScheduled) {
+        flushScheduled = true;
+        flush = true;
+      }
+    }
+    if(flush) scheduler.execute(this::flushNow);
+    return future;
+  }
+
+  /**
+   * This method gets the value of a key that is waiting to be written or is being written
+   * @param tkv The key to get the value of
+   * @return A completed future with the pending value (which can be null when the key is being removed),
+   *         or null if there is no pending write for the key
+   */
+  @Nullable public CompletableFuture<Object> getDirtyValue(@NotNull TypedKeyValue<?> tkv) {
+    synchronized(lock) {
+      Pending pending = dirty.get(tkv);
+      if(pending == null) pending = inFlight.get(tkv);
+      return pending == null ? null : CompletableFuture.completedFuture(pending.value);
+    }
+  }
+
+  /**
+   * This method writes all dirty keys on the flush thread
+   * @return A future that completes once all keys that were dirty at the time of calling are written
+   */
+  public CompletableFuture<Void> flush() {
+    return CompletableFuture.runAsync(this::flushNow, scheduler);
+  }
+
+  /**
+   * This method takes the current dirty keys and writes them as one batch, it only runs on the flush thread
+   * so batches are always written in order
+   */
+  private void flushNow() {
+    LinkedHashMap<TypedKeyValue<?>, Pending> batch;
+    synchronized(lock) {
+      flushScheduled = false;
+      if(dirty.isEmpty()) return;
+      batch = dirty;
+      dirty = new LinkedHashMap<>();
+      inFlight = batch;
+    }
+    flushes.increment();
+    Map<TypedKeyValue<?>, Object> values = new LinkedHashMap<>(batch.size());
+    batch.forEach((tkv, pending) -> values.put(tkv, pending.value));
+    try {
+      Map<TypedKeyValue<?>, Boolean> results = storage.setValues(values).join();
+      batch.forEach((tkv, pending) -> pending.future.complete(Boolean.TRUE.equals(results.get(tkv))));
+    } catch(Exception e) {
+      hookManager.log(Level.SEVERE, "[WriteBehindQueue] Could not flush " + batch.size() + " keys!", e);
+      batch.forEach((tkv, pending) -> pending.future.complete(false));
+    } finally {
+      synchronized(lock) {
+        inFlight = Map.of();
+      }
+    }
+  }
+
+  /**
+   * This method flushes all dirty keys and stops the periodic flush, later writes go directly to the storage
+   */
+  @Override
+  public void close() {
+    synchronized(lock) {
+      closed = true;
+    }
+    // The final flush is queued after any flush that is already running or scheduled
+    scheduler.execute(this::flushNow);
+    if(!StorageThreads.shutdown(scheduler, SHUTDOWN_TIMEOUT_MILLIS))
+      hookManager.log(Level.SEVERE, "[WriteBehindQueue] Could not flush all keys before closing!");
+  }
+
+  /**
+   * @return The amount of keys that are waiting to be written
+   */
+  public int getDirtyKeys() {
+    synchronized(lock) {
+      return dirty.size();
+    }
+  }
+  /**
+   * @return The amount of writes that have been queued
+   */
+  public long getWriteCount() {
+    return writes.sum();
+  }
+  /**
+   * @return The amount of writes that were merged into an earlier write to the same key
+   */
+  public long getCoalescedCount() {
+    return coalesced.sum();
+  }
+  /**
+   * @return The amount of batches that have been written
+   */
+  public long getFlushCount() {
+    return flushes.sum();
+  }
+
+  private static class Pending {
+    private Object value;
+    private final CompletableFuture<Boolean> future;
+
+    private Pending(Object value, CompletableFuture<Boolean> future) {
+      this.value = value;
+      this.future = future;
+    }
+  }
+}
@@ -11,17 +11,47 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 
 /**
- * A class for handling YML configuration files
+ * A class for handling YML configuration files<br>
+ * By default, every change is saved to disk right away. Using {@link #enableDebouncedSaving(long)} the changes are
+ * collected instead and saved once on a background thread, see {@link #save()} for how the file is written.
  */
 public class YMLStorage extends Storage {
+  private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
   private final HookManager hookManager;
   private FileConfiguration config;
   private File configFile;
   private String configName;
+  /**
+   * Guards {@link #config}, which is not thread-safe and is read and written by the caller and the save thread
+   */
+  private final Object lock = new Object();
+  /**
+   * Makes sure only one thread writes the file at a time, always taken before {@link #lock}
+   */
+  private final Object writeLock = new Object();
+  private long debounceMillis = 0;
+  private ScheduledExecutorService saver;
+  private ScheduledFuture<?> pendingSave;
+  private boolean dirty = false;
+  private CompletableFuture<Boolean> nextSave = new CompletableFuture<>();
+  private final LongAdder changes = new LongAdder();
+  private final LongAdder writes = new LongAdder();
 
 
   /**
@@ -83,8 +113,26 @@ public class YMLStorage extends Storage {
    */
   @Override
   public CompletableFuture<Boolean> setValue(@NotNull TypedKeyValue<?> tkv, @Nullable Object value) {
-    this.config.set(tkv.getKey(), value);
-    return CompletableFuture.completedFuture(save());
+    synchronized(lock) {
+      this.config.set(tkv.getKey(), value);
+    }
+    return changed();
+  }
+  /**
+   * This method sets the values of multiple keys and saves the configuration file only once using {@link #save()}
+   * @param values The keys and the values to set, a null value removes the key
+   * @return Per key whether the value was set, which is whether the file could be saved
+   */
+  @Override
+  public CompletableFuture<Map<TypedKeyValue<?>, Boolean>> setValues(@NotNull Map<TypedKeyValue<?>, Object> values) {
+    synchronized(lock) {
+      values.forEach((tkv, value) -> this.config.set(tkv.getKey(), value));
+    }
+    return changed().thenApply((saved) -> {
+      Map<TypedKeyValue<?>, Boolean> results = new HashMap<>(values.size());
+      values.keySet().forEach((tkv) -> results.put(tkv, saved));
+      return results;
+    });
   }
   /**
    * This method gets the value of a key
@@ -93,7 +141,25 @@ public class YMLStorage extends Storage {
    */
   @Override
   public CompletableFuture<Object> getValue(@NotNull TypedKeyValue<?> tkv) {
-    return CompletableFuture.completedFuture(tkv.getType().cast(this.config.get(tkv.getKey())));
+    synchronized(lock) {
+      return CompletableFuture.completedFuture(tkv.getType().cast(this.config.get(tkv.getKey())));
+    }
+  }
+  /**
+   * This method gets the values of multiple keys
+   * @param keys The keys to get the values of
+   * @return The values per key, keys without a value are not in the map
+   */
+  @Override
+  public CompletableFuture<Map<TypedKeyValue<?>, Object>> getValues(@NotNull Collection<? extends TypedKeyValue<?>> keys) {
+    Map<TypedKeyValue<?>, Object> results = new HashMap<>(keys.size());
+    synchronized(lock) {
+      for(TypedKeyValue<?> tkv : keys) {
+        Object value = this.config.get(tkv.getKey());
+        if(value != null) results.put(tkv, tkv.getType().cast(value));
+      }
+    }
+    return CompletableFuture.completedFuture(results);
   }
   /**
    * This method removes the value of a key and saves the configuration file using {@link #save()}
@@ -102,41 +168,140 @@ public class YMLStorage extends Storage {
    */
   @Override
   public CompletableFuture<Boolean> removeValue(@NotNull TypedKeyValue<?> tkv) {
-    this.config.set(tkv.getKey(), null);
-    return CompletableFuture.completedFuture(save());
+    synchronized(lock) {
+      this.config.set(tkv.getKey(), null);
+    }
+    return changed();
   }
   /**
-   * This method closes the configuration file by saving it
+   * This method closes the configuration file by saving it, including any change that is still waiting for a debounced save
    */
   @Override
   public void close() {
+    ScheduledExecutorService saver;
+    synchronized(lock) {
+      saver = this.saver;
+      this.saver = null;
+      this.debounceMillis = 0;
+      if(pendingSave != null) pendingSave.cancel(false);
+      pendingSave = null;
+    }
+    if(saver != null) StorageThreads.shutdown(saver, SHUTDOWN_TIMEOUT_MILLIS);
     save();
   }
 
 
   /**
-   * This method saves the configuration file
+   * This method enables debounced saving. Changes then only mark the configuration as dirty,
+   * and the first change after a save schedules a single save on a background thread after debounceMillis.
+   * All changes made in the meantime are written by that one save. Passing 0 or less saves every change right away again
+   * @param debounceMillis The time to collect changes before saving, in milliseconds
+   */
+  public void enableDebouncedSaving(long debounceMillis) {
+    ScheduledExecutorService old = null;
+    synchronized(lock) {
+      this.debounceMillis = Math.max(0, debounceMillis);
+      if(this.debounceMillis > 0 && saver == null) {
+        saver = StorageThreads.newScheduler("hobb-yml-" + configName);
+      } else if(this.debounceMillis == 0 && saver != null) {
+        old = saver;
+        saver = null;
+      }
+    }
+    if(old != null) {
+      StorageThreads.shutdown(old, SHUTDOWN_TIMEOUT_MILLIS);
+      save();
+    }
+  }
+  /**
+   * This method is called after every change, it either saves right away or schedules a debounced save
+   * @return A future that completes with whether the save containing the change succeeded
+   */
+  private CompletableFuture<Boolean> changed() {
+    changes.increment();
+    synchronized(lock) {
+      dirty = true;
+      if(debounceMillis > 0 && saver != null) {
+        if(pendingSave == null) pendingSave = saver.schedule(this::save, debounceMillis, TimeUnit.MILLISECONDS);
+        return nextSave;
+      }
+    }
+    return CompletableFuture.completedFuture(save());
+  }
+  /**
+   * This method saves the configuration file.<br>
+   * The configuration is copied to a string while holding the lock, so it can keep changing while the file is written.
+   * That string is written to a temporary file which then replaces the configuration file in one (atomic) move,
+   * so a crash during the save never leaves a half-written file behind
    * @return Whether the configuration file was saved successfully
    */
   public boolean save() {
+    synchronized(writeLock) {
+      String snapshot;
+      CompletableFuture<Boolean> saved;
+      synchronized(lock) {
+        snapshot = config.saveToString();
+        dirty = false;
+        if(pendingSave != null) pendingSave.cancel(false);
+        pendingSave = null;
+        saved = nextSave;
+        nextSave = new CompletableFuture<>();
+      }
+      boolean suc = write(snapshot);
+      saved.complete(suc);
+      return suc;
+    }
+  }
+  private boolean write(String snapshot) {
+    Path target = configFile.toPath();
+    Path temp = target.resolveSibling(target.getFileName() + ".tmp");
     try {
-      config.save(configFile);
+      Files.writeString(temp, snapshot, StandardCharsets.UTF_8);
+      try {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch(AtomicMoveNotSupportedException e) {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+      writes.increment();
       return true;
     } catch(IOException e) {
       hookManager.log(Level.SEVERE, "[YMLStorage] Failed to save " + configName + ".yml", e);
       return false;
     }
   }
+  /**
+   * @return Whether there are changes that have not been saved yet
+   */
+  public boolean isDirty() {
+    synchronized(lock) {
+      return dirty;
+    }
+  }
+  /**
+   * @return The amount of changes made to this storage
+   */
+  public long getChangeCount() {
+    return changes.sum();
+  }
+  /**
+   * @return The amount of times the file was written, with debounced saving this is much lower than {@link #getChangeCount()}
+   */
+  public long getWriteCount() {
+    return writes.sum();
+  }
   /**
    * This method gets a {@link ConfigurationSection} or creates a new one if it doesn't exist
    * @param section The name of the section
    * @return The ConfigurationSection object
    */
   @NotNull public ConfigurationSection getSection(@NotNull String section) {
-    ConfigurationSection result = config.getConfigurationSection(section) == null
-      ? config.createSection(section)
-      : config.getConfigurationSection(section);
-    save();
+    ConfigurationSection result;
+    synchronized(lock) {
+      result = config.getConfigurationSection(section) == null
+        ? config.createSection(section)
+        : config.getConfigurationSection(section);
+    }
+    changed();
     return result;
   }
   /**
@@ -144,7 +309,10 @@ public class YMLStorage extends Storage {
    * Useful for when the file is changed externally
    */
   public void reload() {
-    this.config = YamlConfiguration.loadConfiguration(configFile);
+    FileConfiguration reloaded = YamlConfiguration.loadConfiguration(configFile);
+    synchronized(lock) {
+      this.config = reloaded;
+    }
   }
 
 
@@ -0,0 +1,57 @@
+package net.hobbnetwork.testing;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A very small microbenchmark helper for the test commands.<br>
+ * It is not a replacement for JMH, but it runs inside a live server which is where the numbers matter.
+ */
+public class Benchmark {
+  /**
+   * Every result of a task is stored here, so the JIT cannot remove the work of a task whose result is never used
+   */
+  private static Object consumed;
+  /**
+   * The last result is published here once a run is done, so the stores to {@link #consumed} cannot be dropped either
+   */
+  private static volatile Object sink;
+
+  /**
+   * This method runs a task a number of times to warm up the JIT and then measures the average time per call
+   * @param warmup The amount of calls that are not measured
+   * @param iterations The amount of calls that are measured
+   * @param task The task to measure, it receives the index of the call and returns its result
+   * @return The average amount of nanoseconds per call
+   * @throws Exception If the task throws
+   */
+  static public double nanosPerOp(int warmup, int iterations, @NotNull Task task) throws Exception {
+    for(int i = 0; i < warmup; i++) consumed = task.run(i);
+    long start = System.nanoTime();
+    for(int i = 0; i < iterations; i++) consumed = task.run(i);
+    long end = System.nanoTime();
+    sink = consumed;
+    return (end - start) / (double) Math.max(1, iterations);
+  }
+  /**
+   * This method formats a benchmark result to a readable line
+   * @param name The name of the benchmark
+   * @param nanosPerOp The result of {@link #nanosPerOp(int, int, Task)}
+   * @return A line formatted as "name: X ns/op (Y ops/s)"
+   */
+  @NotNull static public String format(@NotNull String name, double nanosPerOp) {
+    return String.format("%s: %.1f ns/op (%.0f ops/s)", name, nanosPerOp, nanosPerOp == 0 ? 0 : 1_000_000_000d / nanosPerOp);
+  }
+
+  /**
+   * A single benchmarked call
+   */
+  @FunctionalInterface
+  public interface Task {
+    /**
+     * @param i The index of the call
+     * @return The result of the call, which is consumed so the call is not optimized away. Can be null if there is none
+     */
+    @Nullable Object run(int i) throws Exception;
+  }
+}
@@ -2,12 +2,27 @@ package net.hobbnetwork.testing;
 
 import net.hobbnetwork.HobbUtils;
 import net.hobbnetwork.commands.HobbCommand;
+import net.hobbnetwork.custom.BoundedCache;
+import net.hobbnetwork.custom.Tuple;
+import net.hobbnetwork.listeners.GUIListener;
+import net.hobbnetwork.managers.HookManager;
+import net.hobbnetwork.storage.CodecRegistry;
+import net.hobbnetwork.storage.SQLStorage;
 import net.hobbnetwork.storage.HobbStorage;
+import net.hobbnetwork.storage.PooledConnection;
 import net.hobbnetwork.utils.GUIUtils;
+import net.hobbnetwork.utils.InventoryPool;
 import net.hobbnetwork.utils.ItemUtil;
+import net.hobbnetwork.utils.LocationUtil;
 import net.hobbnetwork.utils.LogUtil;
+import net.hobbnetwork.utils.PaginatedGUI;
+import net.hobbnetwork.utils.RegionIndex;
 import net.hobbnetwork.utils.TextUtil;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
@@ -18,8 +33,19 @@ import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Random;
+import java.util.UUID;
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
 
 public class TestCommand extends HobbCommand {
   private HobbStorage storage;
@@ -33,6 +59,13 @@ public class TestCommand extends HobbCommand {
     this.getSubCommands().add(new Log());
     this.getSubCommands().add(new GUI());
     this.getSubCommands().add(new CheckSlotIndices());
+    this.getSubCommands().add(new BenchStatements());
+    this.getSubCommands().add(new BenchCodec());
+    this.getSubCommands().add(new BenchLog());
+    this.getSubCommands().add(new GUIStats());
+    this.getSubCommands().add(new GUIPages());
+    this.getSubCommands().add(new BenchParse());
+    this.getSubCommands().add(new BenchRegions());
   }
 
   private class InitDB extends HobbCommand {
@@ -44,8 +77,17 @@ public class TestCommand extends HobbCommand {
     }
     @Override
     public void executes(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
-      // Initialize the database
-      storage = new HobbStorage(HobbUtils.getHookManager(), HobbStorage.StorageType.H2);
+      // Initialize the database, e.g. "/test init-db sqlite" or "/test init-db mysql jdbc:h2:mem:test;MODE=MySQL"
+      HobbStorage.StorageType type = HobbStorage.StorageType.H2;
+      if(args.length > 0) {
+        try {
+          type = HobbStorage.StorageType.valueOf(args[0].toUpperCase());
+        } catch(IllegalArgumentException e) {
+          sender.sendMessage("Unknown storage type " + args[0] + "!");
+          return;
+        }
+      }
+      storage = new HobbStorage(HobbUtils.getHookManager(), type, "hobb-storage", args.length > 1 ? args[1] : null);
       sender.sendMessage("Database initialized! You can now store and load custom classes using /test store-custom-class and /test load-custom-class");
       HobbUtils.getConsole().log(LogUtil.LogLevel.TEST, "Database initialized by test command!");
     }
@@ -144,4 +186,271 @@ public class TestCommand extends HobbCommand {
       }
     }
   }
+
+  private class BenchStatements extends HobbCommand {
+    private static final String SELECT_SQL = "SELECT `value` FROM `key_value` WHERE `key` = ?;";
+    public BenchStatements() {
+      this.subLevel = 1;
+      this.name = "bench-statements";
+      this.description = "Compares preparing a statement on every call with the cached statements of the SQL storages";
+      this.permission = "hobb.utils.test.bench-statements";
+    }
+    @Override
+    public void executes(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
+      if(storage == null || !(storage.getStorage() instanceof SQLStorage sql)) {
+        sender.sendMessage("Run /test init-db first!");
+        return;
+      }
+      int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+      Bukkit.getScheduler().runTaskAsynchronously(HobbUtils.getThisPlugin(), () -> {
+        try (PooledConnection pc = sql.getPool().acquire()) {
+          double uncached = Benchmark.nanosPerOp(iterations / 10, iterations, (i) -> {
+            try (PreparedStatement pstmt = pc.getConnection().prepareStatement(SELECT_SQL)) {
+              pstmt.setString(1, "bench-" + (i & 63));
+              try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+              }
+            }
+          });
+          double cached = Benchmark.nanosPerOp(iterations / 10, iterations, (i) -> {
+            PreparedStatement pstmt = pc.prepare(PooledConnection.Operation.SELECT, SELECT_SQL);
+            pstmt.setString(1, "bench-" + (i & 63));
+            try (ResultSet rs = pstmt.executeQuery()) {
+              return rs.next();
+            }
+          });
+          sender.sendMessage(Benchmark.format("prepareStatement per call", uncached));
+          sender.sendMessage(Benchmark.format("cached statement", cached));
+        } catch(Exception e) {
+          HobbUtils.getHookManager().log(Level.SEVERE, "Statement benchmark failed", e);
+        }
+      });
+    }
+  }
+
+  private static class BenchCodec extends HobbCommand {
+    public BenchCodec() {
+      this.subLevel = 1;
+      this.name = "bench-codec";
+      this.description = "Compares the binary CodecRegistry with Java serialization in speed and size";
+      this.permission = "hobb.utils.test.bench-codec";
+    }
+    @Override
+    public void executes(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
+      int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+      Location location = sender instanceof Player p ? p.getLocation() : new Location(null, 12.5, 64, -300.25);
+      List<Object> values = List.of(42, 1234567890123L, "Hello Hobb Network!", UUID.randomUUID(), location, new Tuple<>("first", "second"));
+      try {
+        for(Object value : values) {
+          String type = value.getClass().getSimpleName();
+          byte[] encoded = CodecRegistry.encode(value.getClass(), value);
+          double encode = Benchmark.nanosPerOp(iterations / 10, iterations, (i) -> CodecRegistry.encode(value.getClass(), value));
+          double decode = Benchmark.nanosPerOp(iterations / 10, iterations, (i) -> CodecRegistry.decode(encoded));
+          sender.sendMessage(type + " codec: " + encoded.length + " bytes, encode " + String.format("%.1f", encode) + " ns/op, decode " + String.format("%.1f", decode) + " ns/op");
+          if(!(value instanceof Serializable)) continue;
+          byte[] serialized = serialize(value);
+          double javaEncode = Benchmark.nanosPerOp(iterations / 10, iterations, (i) -> serialize(value));
+          double javaDecode = Benchmark.nanosPerOp(iterations / 10, iterations, (i) -> {
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+              return ois.readObject();
+            }
+          });
+          sender.sendMessage(type + " java: " + serialized.length + " bytes, encode " + String.format("%.1f", javaEncode) + " ns/op, decode " + String.format("%.1f", javaDecode) + " ns/op");
+        }
+      } catch(Exception e) {
+        HobbUtils.getHookManager().log(Level.SEVERE, "Codec benchmark failed", e);
+      }
+    }
+    private static byte[] serialize(Object value) throws Exception {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+        oos.writeObject(value);
+      }
+      return bytes.toByteArray();
+    }
+  }
+
+  private static class BenchLog extends HobbCommand {
+    public BenchLog() {
+      this.subLevel = 1;
+      this.name = "bench-log";
+      this.description = "Measures the formatted log lines per second and the cost of a disabled log level";
+      this.permission = "hobb.utils.test.bench-log";
+    }
+    @Override
+    public void executes(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
+      int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+      HookManager hookManager = HobbUtils.getHookManager();
+      LogUtil.ColorFormatter formatter = new LogUtil.ColorFormatter(hookManager);
+      LogRecord single = new LogRecord(LogUtil.LogLevel.DEBUG, "Player joined the game at 12, 64, -300");
+      LogRecord multi = new LogRecord(Level.WARNING, "First line\nSecond line\nThird line\n");
+      LogUtil logUtil = hookManager.getLogUtil();
+      Level previous = logUtil.getMinimumLevel();
+      try {
+        double singleLine = Benchmark.nanosPerOp(iterations / 10, iterations, (i) -> formatter.format(single));
+        double multiLine = Benchmark.nanosPerOp(iterations / 10, iterations, (i) -> formatter.format(multi));
+        // Disable DEBUG for a moment to measure what a filtered message costs
+        logUtil.setMinimumLevel(Level.INFO);
+        double concatenated = Benchmark.nanosPerOp(iterations / 10, iterations, (i) -> {
+          hookManager.log(LogUtil.LogLevel.DEBUG, "Iteration " + i + " of " + iterations);
+          return null;
+        });
+        double supplied = Benchmark.nanosPerOp(iterations / 10, iterations, (i) -> {
+          hookManager.log(LogUtil.LogLevel.DEBUG, () -> "Iteration " + i + " of " + iterations);
+          return null;
+        });
+        sender.sendMessage(Benchmark.format("format 1 line", singleLine));
+        sender.sendMessage(Benchmark.format("format 3 lines", multiLine) + String.format(", %.0f lines/s", 3_000_000_000d / multiLine));
+        sender.sendMessage(Benchmark.format("disabled level, concatenated", concatenated));
+        sender.sendMessage(Benchmark.format("disabled level, supplier", supplied));
+      } catch(Exception e) {
+        hookManager.log(Level.SEVERE, "Log benchmark failed", e);
+      } finally {
+        logUtil.setMinimumLevel(previous);
+      }
+      sender.sendMessage("Dropped log records: " + logUtil.getDroppedCount() + ", waiting: " + logUtil.getPendingCount());
+    }
+  }
+
+  private static class GUIStats extends HobbCommand {
+    public GUIStats() {
+      this.subLevel = 1;
+      this.name = "gui-stats";
+      this.description = "Shows the amount of live GUIs, callbacks and pooled inventories, to spot GUIs that are never disposed";
+      this.permission = "hobb.utils.test.gui-stats";
+    }
+    @Override
+    public void executes(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
+      GUIListener listener = GUIListener.get(HobbUtils.getHookManager());
+      sender.sendMessage("Live GUIs: " + GUIUtils.getLiveCount() + ", callbacks: " + GUIUtils.getLiveCallbackCount());
+      if(listener != null) sender.sendMessage("Open GUIs: " + listener.getOpenCount() + ", retained GUIs: " + listener.getRetainedCount());
+      sender.sendMessage("Pooled inventories: " + InventoryPool.getPooledCount() + ", reused " + InventoryPool.getHitCount() + ", created " + InventoryPool.getMissCount());
+    }
+  }
+
+  private static class GUIPages extends HobbCommand {
+    public GUIPages() {
+      this.subLevel = 1;
+      this.name = "gui-pages";
+      this.description = "Open a paginated GUI with a lot of items, only the visible page is created";
+      this.permission = "hobb.utils.test.gui-pages";
+    }
+    @Override
+    public void executes(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
+      if(!(sender instanceof Player p)) {
+        sender.sendMessage("You must be a player to use this command!");
+        return;
+      }
+      int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+      Material[] materials = {Material.DIAMOND, Material.EMERALD, Material.GOLD_INGOT, Material.IRON_INGOT};
+      PaginatedGUI gui = new PaginatedGUI(HobbUtils.getHookManager(), "Test pages", 6, () -> count,
+        (i) -> ItemUtil.getItemStack(materials[i % materials.length], "&bEntry #" + i),
+        (clickEvent, i) -> clickEvent.getWhoClicked().sendMessage("You clicked entry #" + i));
+      gui.open(p);
+    }
+  }
+
+  private static class BenchParse extends HobbCommand {
+    public BenchParse() {
+      this.subLevel = 1;
+      this.name = "bench-parse";
+      this.description = "Compares parsing legacy strings with and without the parse cache on a mix of repeated and unique strings";
+      this.permission = "hobb.utils.test.bench-parse";
+    }
+    @Override
+    public void executes(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
+      int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+      // Like a server: mostly the same scoreboard, GUI and lore lines, and 1 in 10 strings with a changing number
+      String[] repeated = new String[64];
+      for(int i = 0; i < repeated.length; i++) {
+        repeated[i] = switch(i % 4) {
+          case 0 -> "&6&lHobb Network &7| &fLine " + i;
+          case 1 -> "&7Click to &abuy &7item &e#" + i;
+          case 2 -> "&8» &bRank: &fMember &7(" + i + ")";
+          default -> "&cYou do not have permission to use /" + i + "!";
+        };
+      }
+      String[] workload = new String[1024];
+      for(int i = 0; i < workload.length; i++) {
+        workload[i] = i % 10 == 0 ? "&7Balance: &e" + (i * 31) + " coins" : repeated[(i * 7) % repeated.length];
+      }
+      BoundedCache<String, Component> cache = TextUtil.getParseCache();
+      long hits = cache.getHitCount();
+      long misses = cache.getMissCount();
+      try {
+        double uncached = Benchmark.nanosPerOp(iterations / 10, iterations, (i) -> TextUtil.parseMcStringUncached(workload[i & 1023]));
+        double cached = Benchmark.nanosPerOp(iterations / 10, iterations, (i) -> TextUtil.parseMcString(workload[i & 1023]));
+        long runHits = cache.getHitCount() - hits;
+        long runMisses = cache.getMissCount() - misses;
+        sender.sendMessage(Benchmark.format("uncached parse", uncached));
+        sender.sendMessage(Benchmark.format("cached parse", cached));
+        sender.sendMessage(String.format("Hit rate during the run: %.3f, overall: %s", runHits / (double) Math.max(1, runHits + runMisses), cache));
+      } catch(Exception e) {
+        HobbUtils.getHookManager().log(Level.SEVERE, "Parse benchmark failed", e);
+      }
+    }
+  }
+
+  private static class BenchRegions extends HobbCommand {
+    public BenchRegions() {
+      this.subLevel = 1;
+      this.name = "bench-regions";
+      this.description = "Compares finding the region at a block with the RegionIndex and with a linear scan using LocationUtil";
+      this.permission = "hobb.utils.test.bench-regions";
+    }
+    @Override
+    public void executes(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
+      int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+      int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+      World world = Bukkit.getWorlds().getFirst();
+      Random random = new Random(42);
+      // Claims of 8 to 64 blocks wide spread over 20.000 by 20.000 blocks
+      RegionIndex<Integer> index = new RegionIndex<>();
+      Location[][] corners = new Location[count][2];
+      for(int i = 0; i < count; i++) {
+        int x = random.nextInt(20_000) - 10_000, z = random.nextInt(20_000) - 10_000, y = random.nextInt(128) - 64;
+        int dx = 8 + random.nextInt(57), dz = 8 + random.nextInt(57), dy = 16 + random.nextInt(64);
+        corners[i][0] = new Location(world, x, y, z);
+        corners[i][1] = new Location(world, x + dx, y + dy, z + dz);
+        index.add(world.getUID(), x, y, z, x + dx, y + dy, z + dz, i);
+      }
+      // Half of the queries are inside a region, like players walking around their claims
+      Location[] queries = new Location[1024];
+      for(int i = 0; i < queries.length; i++) {
+        Location[] region = corners[random.nextInt(count)];
+        queries[i] = i % 2 == 0
+          ? region[0].clone().add(random.nextInt(8), random.nextInt(16), random.nextInt(8))
+          : new Location(world, random.nextInt(20_000) - 10_000, random.nextInt(128) - 64, random.nextInt(20_000) - 10_000);
+      }
+      UUID uid = world.getUID();
+      Benchmark.Task indexedQuery = (i) -> {
+        Location q = queries[i & 1023];
+        return index.getFirstAt(uid, q.getBlockX(), q.getBlockY(), q.getBlockZ());
+      };
+      Benchmark.Task linearQuery = (i) -> {
+        Location q = queries[i & 1023];
+        for(Location[] region : corners) {
+          if(LocationUtil.isInBetween(q, region[0], region[1])) return region;
+        }
+        return null;
+      };
+      try {
+        // Both ways have to find a region for the same queries, otherwise the numbers compare different work
+        int found = 0, mismatches = 0;
+        for(int i = 0; i < queries.length; i++) {
+          boolean inIndex = indexedQuery.run(i) != null;
+          if(inIndex != (linearQuery.run(i) != null)) mismatches++;
+          else if(inIndex) found++;
+        }
+        double indexed = Benchmark.nanosPerOp(iterations / 10, iterations, indexedQuery);
+        int linearIterations = Math.max(1, iterations / 100);
+        double linear = Benchmark.nanosPerOp(linearIterations / 10, linearIterations, linearQuery);
+        sender.sendMessage(Benchmark.format("RegionIndex, " + count + " regions", indexed));
+        sender.sendMessage(Benchmark.format("linear isInBetween, " + count + " regions", linear));
+        sender.sendMessage(found + " of " + queries.length + " queries are in a region, " + mismatches + " results differ");
+      } catch(Exception e) {
+        HobbUtils.getHookManager().log(Level.SEVERE, "Region benchmark failed", e);
+      }
+    }
+  }
 }
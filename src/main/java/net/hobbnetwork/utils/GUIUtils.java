@@ -1,28 +1,49 @@
 package net.hobbnetwork.utils;
 
+import lombok.Getter;
+import net.hobbnetwork.listeners.GUIListener;
 import net.hobbnetwork.managers.HookManager;
 import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
+import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.Player;
-import org.bukkit.event.EventHandler;
-import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryType;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.lang.ref.Cleaner;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 
-public class GUIUtils implements Listener {
+/**
+ * This class is a GUI (an inventory with clickable items).<br>
+ * The clicks are not handled by a listener per GUI, but by the single {@link GUIListener} of the plugin,
+ * which knows the GUI from the moment it is opened until its last viewer closes it.<br>
+ * By default, a GUI can be opened again after it was closed, as long as the caller holds on to it.
+ * One-time menus can give their inventory back to the {@link InventoryPool} once their last viewer closes them,
+ * and menus that are opened again and again can be kept by a key, see {@link #setRetention(Retention, String)}.
+ */
+public class GUIUtils {
+  private static final Cleaner cleaner = Cleaner.create();
+  private static final AtomicInteger liveGUIs = new AtomicInteger();
+  private static final AtomicInteger liveCallbacks = new AtomicInteger();
   private final HookManager hookManager;
-  private static final HashMap<Inventory, GUIUtils> guiMap = new HashMap<>();
   private Inventory inventory;
   private final InventoryType type;
   private final Component title;
   private final Integer size;
-  private final ArrayList<Boolean> isEditable;
-  private final ArrayList<ClickCallback> callbacks;
+  private final boolean[] isEditable;
+  private final ClickCallback[] callbacks;
+  @Getter private Retention retention = Retention.STRONG;
+  @Getter private String retentionKey;
+  @Getter private boolean disposed = false;
+  private final LiveState liveState = new LiveState();
+  private final Cleaner.Cleanable cleanable;
 
   /**
    * This constructor is used to create a GUIUtils object with a title that is a Component object.
@@ -36,9 +57,11 @@ public class GUIUtils implements Listener {
     this.type = type;
     this.title = title;
     this.size = size;
-    this.isEditable = new ArrayList<>(size);
-    this.callbacks = new ArrayList<>(size);
-    init();
+    this.isEditable = new boolean[size];
+    this.callbacks = new ClickCallback[size];
+    liveGUIs.incrementAndGet();
+    // A GUI that is never disposed is still counted down once it is garbage collected
+    this.cleanable = cleaner.register(this, liveState);
   }
 
   /**
@@ -52,19 +75,6 @@ public class GUIUtils implements Listener {
   public GUIUtils(HookManager hookManager, InventoryType type, String title, Integer size) {
     this(hookManager, type, TextUtil.parseMcString(title), size);
   }
-  /**
-   * This method ensures that the isEditable and callbacks ArrayLists are initialized.
-   * It also registers the GUIUtils object as a listener if the HookManager is hooked.
-   */
-  private void init() {
-    for (int i = 0; i < size; i++) {
-      this.isEditable.add(false);
-      this.callbacks.add(null);
-    }
-    if (hookManager.isHooked()) {
-      Bukkit.getPluginManager().registerEvents(this, hookManager.getPlugin());
-    }
-  }
   /**
    * This method sets the item in the GUI at the specified slot.
    * @param slot The slot to set the item in
@@ -74,17 +84,16 @@ public class GUIUtils implements Listener {
    */
   public void setItem(int slot, ItemStack item, boolean isEditable, ClickCallback callback) {
     if (size != null && slot >= size) return;
-    if (inventory == null) {
-      if (type == InventoryType.CHEST && size != null) {
-        inventory = Bukkit.createInventory(null, (size/9)*9, title);
-      } else {
-        inventory = Bukkit.createInventory(null, type, title);
-      }
+    if (disposed) {
+      hookManager.log(Level.WARNING, "[GUIUtils] Cannot set an item in a disposed GUI, create a new one or change its retention");
+      return;
     }
+    if (inventory == null) inventory = InventoryPool.acquire(type, size, title);
     inventory.setItem(slot, item);
-    this.isEditable.set(slot, isEditable);
-    this.callbacks.set(slot, callback);
-    guiMap.put(inventory, this);
+    this.isEditable[slot] = isEditable;
+    if (this.callbacks[slot] == null && callback != null) liveState.add(1);
+    else if (this.callbacks[slot] != null && callback == null) liveState.add(-1);
+    this.callbacks[slot] = callback;
   }
   /**
    * This method opens the GUI for the specified player.<br>
@@ -93,33 +102,140 @@ public class GUIUtils implements Listener {
    * @param player The player to open the GUI for
    */
   public void open(Player player) {
+    if (disposed) {
+      hookManager.log(Level.WARNING, "[GUIUtils] Cannot open a disposed GUI, create a new one or change its retention");
+      return;
+    }
     if (inventory == null) return;
+    GUIListener listener = GUIListener.get(hookManager);
+    if (listener != null) listener.track(inventory, this);
     player.openInventory(this.inventory);
   }
+  /**
+   * This method sets what happens to the GUI after its last viewer closed it.<br>
+   * A GUI that is kept with a key can be found again using {@link #getRetained(HookManager, String)}
+   * @param retention What happens to the GUI after it is closed
+   * @param key The key to find the GUI again with, or null to only keep it as long as the caller holds on to it
+   */
+  public void setRetention(@NotNull Retention retention, @Nullable String key) {
+    GUIListener listener = GUIListener.get(hookManager);
+    if (listener != null && retentionKey != null) listener.forget(retentionKey, this);
+    this.retention = retention;
+    this.retentionKey = retention == Retention.DISPOSE ? null : key;
+    if (listener != null && retentionKey != null) listener.retain(retentionKey, this, retention);
+  }
+  /**
+   * This method gets a GUI that was kept using {@link #setRetention(Retention, String)}
+   * @param hookManager The HookManager of the plugin that created the GUI
+   * @param key The key of the GUI
+   * @return The GUI, or null if it was never kept, was disposed or was garbage collected
+   */
+  @Nullable public static GUIUtils getRetained(@NotNull HookManager hookManager, @NotNull String key) {
+    GUIListener listener = GUIListener.get(hookManager);
+    return listener == null ? null : listener.getRetained(key);
+  }
+  /**
+   * This method is called by the {@link GUIListener} after the last viewer closed the GUI.
+   * A GUI with the {@link Retention#DISPOSE} retention is disposed on the next tick, unless it was opened again by then
+   */
+  public void onLastViewerClosed() {
+    if (retention != Retention.DISPOSE || disposed || !hookManager.isHooked()) return;
+    Bukkit.getScheduler().runTask(hookManager.getPlugin(), () -> {
+      if (inventory != null && inventory.getViewers().isEmpty()) dispose();
+    });
+  }
+  /**
+   * This method closes the GUI for all viewers, forgets all callbacks and gives the inventory back to the {@link InventoryPool}.
+   * A disposed GUI cannot be opened again
+   */
+  public void dispose() {
+    if (disposed) return;
+    disposed = true;
+    GUIListener listener = GUIListener.get(hookManager);
+    if (listener != null && retentionKey != null) listener.forget(retentionKey, this);
+    if (inventory != null) {
+      for (HumanEntity viewer : new ArrayList<>(inventory.getViewers())) viewer.closeInventory();
+      if (listener != null) listener.untrack(inventory);
+      InventoryPool.release(type, size, title, inventory);
+      inventory = null;
+    }
+    Arrays.fill(callbacks, null);
+    Arrays.fill(isEditable, false);
+    cleanable.clean();
+  }
+  /**
+   * @return The amount of GUIs that were created and are not disposed or garbage collected yet
+   */
+  public static int getLiveCount() {
+    return liveGUIs.get();
+  }
+  /**
+   * @return The amount of click callbacks of all live GUIs
+   */
+  public static int getLiveCallbackCount() {
+    return liveCallbacks.get();
+  }
   /**
    * This method returns the ClickCallback for the specified slot.
    * @param slot The slot to get the ClickCallback for
    * @return The ClickCallback for the specified slot
    */
   public ClickCallback getCallback(int slot) {
-    return this.callbacks.get(slot);
+    return this.callbacks[slot];
   }
   /**
-   * This method is used to handle InventoryClickEvents.
+   * @param slot The slot to check
+   * @return Whether the item in the slot can be taken or changed by the player
+   */
+  public boolean isEditable(int slot) {
+    return slot >= 0 && slot < size && this.isEditable[slot];
+  }
+  /**
+   * This method is used to handle the InventoryClickEvents in this GUI, it is called by the {@link GUIListener}.
    * @param event The InventoryClickEvent to handle
    */
-  @EventHandler
   public void onInventoryClick(InventoryClickEvent event) {
-    Inventory inventory = event.getInventory();
-    if (!guiMap.containsKey(inventory)) return;
-    GUIUtils gui = guiMap.get(inventory);
     int slot = event.getRawSlot();
-    if (slot < 0 || slot >= gui.size) return;
-    event.setCancelled(gui.isEditable.get(slot) == null || !gui.isEditable.get(slot));
-    ClickCallback callback = gui.getCallback(slot);
+    if (slot < 0 || slot >= size) return;
+    event.setCancelled(!isEditable[slot]);
+    ClickCallback callback = callbacks[slot];
     if (callback == null) return;
     callback.onClick(event);
   }
+  /**
+   * What happens to a GUI after its last viewer closed it
+   * <ul>
+   *   <li>{@link Retention#DISPOSE} - The GUI is disposed and cannot be opened again</li>
+   *   <li>{@link Retention#WEAK}    - The GUI is kept until it is garbage collected, which happens once no one else holds on to it</li>
+   *   <li>{@link Retention#SOFT}    - The GUI is kept until the server runs low on memory</li>
+   *   <li>{@link Retention#STRONG}  - The GUI is kept until {@link #dispose()} is called, this is the default</li>
+   * </ul>
+   */
+  public enum Retention {
+    DISPOSE,
+    WEAK,
+    SOFT,
+    STRONG
+  }
+
+  /**
+   * The part of a GUI that is counted in the live statistics, it does not reference the GUI so it can run once the GUI is garbage collected
+   */
+  private static class LiveState implements Runnable {
+    private final AtomicInteger callbacks = new AtomicInteger();
+
+    private void add(int delta) {
+      callbacks.addAndGet(delta);
+      liveCallbacks.addAndGet(delta);
+    }
+
+    @Override
+    public void run() {
+      liveGUIs.decrementAndGet();
+      liveCallbacks.addAndGet(-callbacks.getAndSet(0));
+    }
+  }
+
   /**
    * This interface is used to handle InventoryClickEvents.
    */
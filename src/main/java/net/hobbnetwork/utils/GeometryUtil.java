@@ -0,0 +1,161 @@
+package net.hobbnetwork.utils;
+
+/**
+ * This class offers geometry on plain numbers, so hot loops do not create {@link org.bukkit.Location} or {@link org.bukkit.util.Vector} objects.<br>
+ * Block positions can be packed into a single long (a block key), which can be compared, stored in primitive collections
+ * or used as map key. Distances are compared squared, so no square root is needed.<br>
+ * None of these methods allocate. {@link LocationUtil} uses them for its Location based methods
+ */
+public class GeometryUtil {
+  /**
+   * A block key holds 26 bits of x, 26 bits of z and 12 bits of y, like Minecraft itself:
+   * x and z from -33.554.432 to 33.554.431 and y from -2048 to 2047
+   */
+  private static final int XZ_BITS = 26;
+  private static final int Y_BITS = 12;
+  private static final long XZ_MASK = (1L << XZ_BITS) - 1;
+  private static final long Y_MASK = (1L << Y_BITS) - 1;
+  private static final int X_SHIFT = XZ_BITS + Y_BITS;
+  private static final int Z_SHIFT = Y_BITS;
+
+  /**
+   * This method packs a block position into a single long
+   * @param x The x of the block
+   * @param y The y of the block
+   * @param z The z of the block
+   * @return The block key
+   */
+  static public long packBlock(int x, int y, int z) {
+    return ((x & XZ_MASK) << X_SHIFT) | ((z & XZ_MASK) << Z_SHIFT) | (y & Y_MASK);
+  }
+  /**
+   * @param key The block key of {@link #packBlock(int, int, int)}
+   * @return The x of the block
+   */
+  static public int unpackX(long key) {
+    return (int) (key >> X_SHIFT);
+  }
+  /**
+   * @param key The block key of {@link #packBlock(int, int, int)}
+   * @return The y of the block
+   */
+  static public int unpackY(long key) {
+    return (int) (key << (64 - Y_BITS) >> (64 - Y_BITS));
+  }
+  /**
+   * @param key The block key of {@link #packBlock(int, int, int)}
+   * @return The z of the block
+   */
+  static public int unpackZ(long key) {
+    return (int) (key << (64 - X_SHIFT) >> (64 - XZ_BITS));
+  }
+  /**
+   * This method packs a chunk position into a single long
+   * @param chunkX The x of the chunk, which is the x of a block shifted right by 4
+   * @param chunkZ The z of the chunk, which is the z of a block shifted right by 4
+   * @return The chunk key
+   */
+  static public long packChunk(int chunkX, int chunkZ) {
+    return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+  }
+  /**
+   * @param key The chunk key of {@link #packChunk(int, int)}
+   * @return The x of the chunk
+   */
+  static public int unpackChunkX(long key) {
+    return (int) (key >> 32);
+  }
+  /**
+   * @param key The chunk key of {@link #packChunk(int, int)}
+   * @return The z of the chunk
+   */
+  static public int unpackChunkZ(long key) {
+    return (int) key;
+  }
+  /**
+   * This method gets the block coordinate of a coordinate, rounding down like {@link org.bukkit.Location#getBlockX()}
+   * @param coordinate The coordinate
+   * @return The block coordinate
+   */
+  static public int toBlock(double coordinate) {
+    int truncated = (int) coordinate;
+    return coordinate < truncated ? truncated - 1 : truncated;
+  }
+
+  /**
+   * @return The squared distance between two points
+   */
+  static public double distanceSquared(double x1, double y1, double z1, double x2, double y2, double z2) {
+    double dx = x1 - x2, dy = y1 - y2, dz = z1 - z2;
+    return dx * dx + dy * dy + dz * dz;
+  }
+  /**
+   * @return The squared distance between two points, ignoring the y value
+   */
+  static public double horizontalDistanceSquared(double x1, double z1, double x2, double z2) {
+    double dx = x1 - x2, dz = z1 - z2;
+    return dx * dx + dz * dz;
+  }
+  /**
+   * This method checks if two points are within a distance of each other, without calculating a square root
+   * @return True if the distance between the points is at most the radius
+   */
+  static public boolean isWithin(double x1, double y1, double z1, double x2, double y2, double z2, double radius) {
+    return distanceSquared(x1, y1, z1, x2, y2, z2) <= radius * radius;
+  }
+  /**
+   * This method checks if two points are within a horizontal distance of each other, without calculating a square root
+   * @return True if the distance between the points, ignoring the y value, is at most the radius
+   */
+  static public boolean isWithinHorizontal(double x1, double z1, double x2, double z2, double radius) {
+    return horizontalDistanceSquared(x1, z1, x2, z2) <= radius * radius;
+  }
+  /**
+   * This method checks if two points have the same coordinates when cast to integers, which rounds towards 0
+   * unlike {@link #toBlock(double)}. Each coordinate is cast once and no key is packed, so it also works outside the block key range
+   * @return True if the truncated x, y and z values are the same
+   */
+  static public boolean isSameIntPosition(double x1, double y1, double z1, double x2, double y2, double z2) {
+    return (int) x1 == (int) x2 && (int) y1 == (int) y2 && (int) z1 == (int) z2;
+  }
+  /**
+   * @return The squared distance between two block keys of {@link #packBlock(int, int, int)}
+   */
+  static public long blockDistanceSquared(long key1, long key2) {
+    long dx = unpackX(key1) - unpackX(key2), dy = unpackY(key1) - unpackY(key2), dz = unpackZ(key1) - unpackZ(key2);
+    return dx * dx + dy * dy + dz * dz;
+  }
+
+  /**
+   * This method checks if a block is in a cuboid, the minimum corner has to come first
+   * @return True if the block is in the cuboid, including its borders
+   */
+  static public boolean cuboidContains(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, int x, int y, int z) {
+    return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+  }
+  /**
+   * This method checks if a block is in a cuboid whose corners can be given in any order
+   * @return True if the block is in the cuboid, including its borders
+   */
+  static public boolean cuboidContainsUnordered(int x1, int y1, int z1, int x2, int y2, int z2, int x, int y, int z) {
+    return cuboidContains(Math.min(x1, x2), Math.min(y1, y2), Math.min(z1, z2), Math.max(x1, x2), Math.max(y1, y2), Math.max(z1, z2), x, y, z);
+  }
+  /**
+   * This method checks if a block key is in a cuboid, the minimum corner has to come first
+   * @param key The block key of {@link #packBlock(int, int, int)}
+   * @return True if the block is in the cuboid, including its borders
+   */
+  static public boolean cuboidContains(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, long key) {
+    return cuboidContains(minX, minY, minZ, maxX, maxY, maxZ, unpackX(key), unpackY(key), unpackZ(key));
+  }
+  /**
+   * This method checks if two cuboids share at least one block, the minimum corners have to come first
+   * @return True if the cuboids overlap
+   */
+  static public boolean cuboidsOverlap(int minX1, int minY1, int minZ1, int maxX1, int maxY1, int maxZ1,
+                                       int minX2, int minY2, int minZ2, int maxX2, int maxY2, int maxZ2) {
+    return minX1 <= maxX2 && maxX1 >= minX2
+      && minY1 <= maxY2 && maxY1 >= minY2
+      && minZ1 <= maxZ2 && maxZ1 >= minZ2;
+  }
+}
@@ -0,0 +1,340 @@
+package net.hobbnetwork.utils;
+
+import net.hobbnetwork.listeners.InventoryListener;
+import net.hobbnetwork.managers.HookManager;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.Tag;
+import org.bukkit.block.ShulkerBox;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.BlockStateMeta;
+import org.bukkit.inventory.meta.BundleMeta;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * This class is a snapshot of the contents of an inventory, including the items in shulker boxes and bundles.<br>
+ * The inventory is scanned once, after that the total amount and the positions of a Material are a single lookup.
+ * Only shulker boxes and bundles have their ItemMeta read, so other items are never cloned.<br>
+ * {@link #build(Inventory)} always scans the inventory as it is now. The index of a player can also be cached using {@link #of(Inventory)},
+ * which is opt-in for code that calls {@link #invalidate(Player)} after changing inventories, see {@link #enableCaching(HookManager)}.<br>
+ * <b>NOTE:</b> like all inventory code, this should only be used on the main thread
+ */
+public class InventoryIndex {
+  private static final HashMap<UUID, InventoryIndex> cache = new HashMap<>();
+  /**
+   * The tick until which the index of a player is not cached, because its inventory changed during that tick
+   */
+  private static final HashMap<UUID, Integer> changedInTick = new HashMap<>();
+  /**
+   * The plugins that enabled caching, caching stops once all of them disabled it
+   */
+  private static final Set<Plugin> cachingPlugins = new HashSet<>();
+  private static int maxAgeTicks = 1;
+  private static long hits = 0;
+  private static long builds = 0;
+  private final HashMap<Material, Entry> entries = new HashMap<>();
+  private final int builtTick;
+
+  private InventoryIndex(int builtTick) {
+    this.builtTick = builtTick;
+  }
+
+  /**
+   * This method scans an inventory, the shulker boxes in it and the bundles in both
+   * @param inventory The inventory to scan
+   * @return The index of the inventory
+   */
+  @NotNull public static InventoryIndex build(@NotNull Inventory inventory) {
+    builds++;
+    InventoryIndex index = new InventoryIndex(Bukkit.getCurrentTick());
+    ItemStack[] contents = inventory.getContents();
+    for (int slot = 0; slot < contents.length; slot++) {
+      ItemStack item = contents[slot];
+      if (item == null || item.getType().isAir()) continue;
+      Material type = item.getType();
+      index.add(type, new Position(slot, -1, -1, item.getAmount(), item));
+      if (Tag.SHULKER_BOXES.isTagged(type)) index.addShulker(item, slot);
+      else if (isBundle(type)) index.addBundle(item, slot, -1);
+    }
+    return index;
+  }
+
+  private void addShulker(ItemStack shulkerItem, int slot) {
+    if (!(shulkerItem.getItemMeta() instanceof BlockStateMeta im)) return;
+    if (!(im.getBlockState() instanceof ShulkerBox shulker)) return;
+    ItemStack[] contents = shulker.getInventory().getContents();
+    for (int shulkerSlot = 0; shulkerSlot < contents.length; shulkerSlot++) {
+      ItemStack item = contents[shulkerSlot];
+      if (item == null || item.getType().isAir()) continue;
+      add(item.getType(), new Position(slot, shulkerSlot, -1, item.getAmount(), item));
+      if (isBundle(item.getType())) addBundle(item, slot, shulkerSlot);
+    }
+  }
+
+  private void addBundle(ItemStack bundle, int slot, int shulkerSlot) {
+    if (!(bundle.getItemMeta() instanceof BundleMeta im)) return;
+    List<ItemStack> items = im.getItems();
+    for (int bundleSlot = 0; bundleSlot < items.size(); bundleSlot++) {
+      ItemStack item = items.get(bundleSlot);
+      if (item == null || item.getType().isAir()) continue;
+      add(item.getType(), new Position(slot, shulkerSlot, bundleSlot, item.getAmount(), item));
+    }
+  }
+
+  private void add(Material type, Position position) {
+    Entry entry = entries.computeIfAbsent(type, (t) -> new Entry());
+    entry.positions.add(position);
+    entry.total += position.amount();
+    if (position.inBundle()) entry.bundled += position.amount();
+  }
+
+  static boolean isBundle(@NotNull Material type) {
+    // Since 1.21.2 bundles can be dyed, which gives every color its own Material
+    return type == Material.BUNDLE || type.name().endsWith("_BUNDLE");
+  }
+
+  /**
+   * @return An index without any items
+   */
+  @NotNull public static InventoryIndex empty() {
+    return new InventoryIndex(Bukkit.getCurrentTick());
+  }
+
+  /**
+   * This method gets the index of an inventory. The index of a player inventory is cached while caching is enabled,
+   * it is reused until the inventory changes or it is older than {@link #setMaxAgeTicks(int)}.<br>
+   * <b>NOTE:</b> changes made in code are only seen after {@link #invalidate(Player)} was called,
+   * so use {@link #build(Inventory)} when the inventory may have been changed during this tick without invalidating it
+   * @param inventory The inventory to get the index of
+   * @return The index of the inventory
+   */
+  @NotNull public static InventoryIndex of(@NotNull Inventory inventory) {
+    if (cachingPlugins.isEmpty() || !(inventory.getHolder() instanceof Player player) || inventory != player.getInventory()) return build(inventory);
+    UUID uuid = player.getUniqueId();
+    int tick = Bukkit.getCurrentTick();
+    Integer changed = changedInTick.get(uuid);
+    if (changed != null) {
+      if (changed >= tick) return build(inventory);
+      changedInTick.remove(uuid);
+    }
+    InventoryIndex index = cache.get(uuid);
+    if (index != null && tick - index.builtTick < maxAgeTicks) {
+      hits++;
+      return index;
+    }
+    index = build(inventory);
+    cache.put(uuid, index);
+    return index;
+  }
+  /**
+   * This method forgets the cached index of a player, call it after changing the inventory of a player in code.<br>
+   * Changes by the player are noticed by the {@link InventoryListener}. Because those events are called before the
+   * inventory changes, the index is not cached again during the rest of the tick
+   * @param player The player whose inventory changed
+   */
+  public static void invalidate(@NotNull Player player) {
+    cache.remove(player.getUniqueId());
+    if (!cachingPlugins.isEmpty()) changedInTick.put(player.getUniqueId(), Bukkit.getCurrentTick());
+  }
+  /**
+   * This method forgets the cached index of a player that left, without blocking caching for the rest of the tick
+   * @param uuid The UUID of the player
+   */
+  public static void forget(@NotNull UUID uuid) {
+    cache.remove(uuid);
+    changedInTick.remove(uuid);
+  }
+  /**
+   * This method starts caching the index of players for {@link #of(Inventory)}, which registers the {@link InventoryListener} of the plugin.<br>
+   * Caching is off by default, only enable it if the plugin calls {@link #invalidate(Player)} after changing inventories in code
+   * @param hookManager The HookManager of the plugin
+   */
+  public static void enableCaching(@NotNull HookManager hookManager) {
+    if (InventoryListener.get(hookManager) != null) cachingPlugins.add(hookManager.getPlugin());
+  }
+  /**
+   * This method stops caching for a plugin, it is called when that plugin disables.
+   * The cached indexes are only forgotten once no other plugin has caching enabled
+   * @param plugin The plugin that enabled caching
+   */
+  public static void disableCaching(@NotNull Plugin plugin) {
+    if (!cachingPlugins.remove(plugin) || !cachingPlugins.isEmpty()) return;
+    cache.clear();
+    changedInTick.clear();
+  }
+  /**
+   * @return Whether at least one plugin enabled caching
+   */
+  public static boolean isCaching() {
+    return !cachingPlugins.isEmpty();
+  }
+  /**
+   * This method sets how long a cached index is used if the inventory does not change, by default only during the tick it was built in.
+   * Raise it only if every change to inventories in code is followed by {@link #invalidate(Player)}
+   * @param ticks The maximum age in ticks, at least 1
+   */
+  public static void setMaxAgeTicks(int ticks) {
+    maxAgeTicks = Math.max(1, ticks);
+  }
+  /**
+   * @return The amount of times a cached index was reused
+   */
+  public static long getHitCount() {
+    return hits;
+  }
+  /**
+   * @return The amount of times an inventory was scanned
+   */
+  public static long getBuildCount() {
+    return builds;
+  }
+
+  /**
+   * @param type The Material to count
+   * @param includeBundles Whether to count the items in bundles as well
+   * @return The total amount of the Material in the inventory and its shulker boxes
+   */
+  public int getTotal(@NotNull Material type, boolean includeBundles) {
+    Entry entry = entries.get(type);
+    if (entry == null) return 0;
+    return includeBundles ? entry.total : entry.total - entry.bundled;
+  }
+  /**
+   * @param type The Material to find
+   * @return Every stack of the Material, in the order of the inventory
+   */
+  @NotNull public List<Position> getPositions(@NotNull Material type) {
+    Entry entry = entries.get(type);
+    return entry == null ? List.of() : Collections.unmodifiableList(entry.positions);
+  }
+  /**
+   * @return Every Material in the inventory
+   */
+  @NotNull public Set<Material> getMaterials() {
+    return Collections.unmodifiableSet(entries.keySet());
+  }
+  /**
+   * This method checks if a single stack of a Material has at least an amount
+   * @param type The Material to check for
+   * @param amount The amount the stack should have
+   * @param includeBundles Whether to check the stacks in bundles as well
+   * @return True if such a stack exists
+   */
+  public boolean hasStack(@NotNull Material type, int amount, boolean includeBundles) {
+    Entry entry = entries.get(type);
+    if (entry == null) return false;
+    for (Position position : entry.positions) {
+      if (position.amount() >= amount && (includeBundles || !position.inBundle())) return true;
+    }
+    return false;
+  }
+  /**
+   * This method finds the first stack of a Material with at least an amount, outside of bundles
+   * @param type The Material to find
+   * @param amount The amount the stack should have
+   * @return The position of the stack, or null if there is none
+   */
+  @Nullable public Position find(@NotNull Material type, int amount) {
+    Entry entry = entries.get(type);
+    if (entry == null) return null;
+    for (Position position : entry.positions) {
+      if (position.amount() >= amount && !position.inBundle()) return position;
+    }
+    return null;
+  }
+
+  /**
+   * This method checks a whole list of requirements at once, like the ingredients of a recipe or the cost in a shop.
+   * The amounts of all stacks are added up, wherever they are
+   * @param required The required amount of every Material
+   * @param includeBundles Whether to count the items in bundles as well
+   * @return The amount that is missing of every Material that there is not enough of, empty if there is enough of everything
+   */
+  @NotNull public Map<Material, Integer> getMissing(@NotNull Map<Material, Integer> required, boolean includeBundles) {
+    HashMap<Material, Integer> missing = new HashMap<>();
+    for (Map.Entry<Material, Integer> requirement : required.entrySet()) {
+      int have = getTotal(requirement.getKey(), includeBundles);
+      if (have < requirement.getValue()) missing.put(requirement.getKey(), requirement.getValue() - have);
+    }
+    return missing;
+  }
+  /**
+   * This method checks a whole list of required items at once, an item only counts for a requirement if it is
+   * {@link ItemStack#isSimilar(ItemStack) similar}, so its name, lore and enchantments have to match as well.
+   * The amounts of all stacks are added up, wherever they are, and similar requirements are added up as well
+   * @param required The required items, their amount is the required amount
+   * @param includeBundles Whether to count the items in bundles as well
+   * @return The amount that is missing of every required item that there is not enough of, empty if there is enough of everything
+   */
+  @NotNull public Map<ItemStack, Integer> getMissing(@NotNull Collection<ItemStack> required, boolean includeBundles) {
+    ArrayList<ItemStack> items = new ArrayList<>(required.size());
+    ArrayList<Integer> amounts = new ArrayList<>(required.size());
+    requirements:
+    for (ItemStack item : required) {
+      if (item == null || item.getType().isAir()) continue;
+      for (int i = 0; i < items.size(); i++) {
+        if (items.get(i).isSimilar(item)) {
+          amounts.set(i, amounts.get(i) + item.getAmount());
+          continue requirements;
+        }
+      }
+      items.add(item);
+      amounts.add(item.getAmount());
+    }
+    HashMap<ItemStack, Integer> missing = new HashMap<>();
+    for (int i = 0; i < items.size(); i++) {
+      ItemStack item = items.get(i);
+      int have = 0;
+      for (Position position : getPositions(item.getType())) {
+        if ((includeBundles || !position.inBundle()) && position.item().isSimilar(item)) have += position.amount();
+      }
+      if (have < amounts.get(i)) missing.put(item, amounts.get(i) - have);
+    }
+    return missing;
+  }
+
+  /**
+   * This record is the position of a stack in the inventory
+   * @param slot The slot in the inventory
+   * @param shulkerSlot The slot in the shulker box in that slot, or -1
+   * @param bundleSlot The index in the bundle in that slot or shulker slot, or -1
+   * @param amount The amount of the stack when the index was built
+   * @param item The stack, do not change it. It is not cloned, so a stack directly in the inventory is the live stack
+   *             returned by {@link Inventory#getContents()} and shows later changes to that slot,
+   *             while stacks in shulker boxes and bundles are copies read from the ItemMeta when the index was built
+   */
+  public record Position(int slot, int shulkerSlot, int bundleSlot, int amount, @NotNull ItemStack item) {
+    /**
+     * @return Whether the stack is in a shulker box
+     */
+    public boolean inShulker() {
+      return shulkerSlot >= 0;
+    }
+    /**
+     * @return Whether the stack is in a bundle
+     */
+    public boolean inBundle() {
+      return bundleSlot >= 0;
+    }
+  }
+
+  private static class Entry {
+    private final ArrayList<Position> positions = new ArrayList<>(4);
+    private int total = 0;
+    private int bundled = 0;
+  }
+}
@@ -0,0 +1,93 @@
+package net.hobbnetwork.utils;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+/**
+ * This class keeps the inventories of disposed {@link GUIUtils} for reuse, so opening a menu does not have to create a new inventory.<br>
+ * Inventories are pooled per type, size and title. At most {@value #MAX_PER_KEY} inventories are kept per key
+ * and {@value #MAX_TOTAL} in total, inventories beyond that are left to the garbage collector.<br>
+ * <b>NOTE:</b> like all inventory code, this should only be used on the main thread
+ */
+public class InventoryPool {
+  private static final int MAX_PER_KEY = 8;
+  private static final int MAX_TOTAL = 256;
+  private static final HashMap<Key, ArrayDeque<Inventory>> pool = new HashMap<>();
+  private static int pooled = 0;
+  private static long hits = 0;
+  private static long misses = 0;
+
+  /**
+   * This method gets an empty inventory from the pool or creates a new one
+   * @param type The type of the inventory
+   * @param size The size of the inventory, only used for {@link InventoryType#CHEST}
+   * @param title The title of the inventory
+   * @return An empty inventory without viewers
+   */
+  @NotNull public static Inventory acquire(@NotNull InventoryType type, int size, @NotNull Component title) {
+    Key key = new Key(type, type == InventoryType.CHEST ? (size/9)*9 : type.getDefaultSize(), title);
+    ArrayDeque<Inventory> inventories = pool.get(key);
+    Inventory inventory = inventories == null ? null : inventories.pollFirst();
+    if (inventories != null && inventories.isEmpty()) pool.remove(key);
+    if (inventory != null) {
+      pooled--;
+      hits++;
+      return inventory;
+    }
+    misses++;
+    return type == InventoryType.CHEST
+      ? Bukkit.createInventory(null, key.size(), title)
+      : Bukkit.createInventory(null, type, title);
+  }
+
+  /**
+   * This method clears an inventory and puts it back in the pool, inventories that still have viewers are not pooled
+   * @param type The type the inventory was acquired with
+   * @param size The size the inventory was acquired with
+   * @param title The title the inventory was acquired with
+   * @param inventory The inventory to give back
+   */
+  public static void release(@NotNull InventoryType type, int size, @NotNull Component title, @NotNull Inventory inventory) {
+    if (!inventory.getViewers().isEmpty() || pooled >= MAX_TOTAL) return;
+    Key key = new Key(type, type == InventoryType.CHEST ? (size/9)*9 : type.getDefaultSize(), title);
+    ArrayDeque<Inventory> inventories = pool.computeIfAbsent(key, (k) -> new ArrayDeque<>(MAX_PER_KEY));
+    if (inventories.size() >= MAX_PER_KEY) return;
+    inventory.clear();
+    inventories.addFirst(inventory);
+    pooled++;
+  }
+
+  /**
+   * This method removes all inventories from the pool
+   */
+  public static void clear() {
+    pool.clear();
+    pooled = 0;
+  }
+  /**
+   * @return The amount of inventories waiting in the pool
+   */
+  public static int getPooledCount() {
+    return pooled;
+  }
+  /**
+   * @return The amount of times an inventory was reused
+   */
+  public static long getHitCount() {
+    return hits;
+  }
+  /**
+   * @return The amount of times a new inventory had to be created
+   */
+  public static long getMissCount() {
+    return misses;
+  }
+
+  private record Key(InventoryType type, int size, Component title) {}
+}
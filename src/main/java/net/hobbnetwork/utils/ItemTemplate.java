@@ -0,0 +1,230 @@
+package net.hobbnetwork.utils;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.Style;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class is an item that is parsed and built once and then handed out as cheap copies.<br>
+ * The name and lore can contain placeholders like {@code {price}}, which are filled in by {@link #create(Map)}.
+ * The text around a placeholder is parsed when the template is built, a placeholder value is added as plain text
+ * in the color and decorations that were active in front of it, so filling it in never parses legacy codes again.<br>
+ * Templates are immutable, so they can be shared between threads and kept by key using {@link ItemUtil#getTemplate(String, java.util.function.Function)}.
+ * <pre>{@code
+ * ItemTemplate buy = ItemUtil.template(Material.EMERALD).name("&aBuy {item}").lore("&7Price: &e{price}").build();
+ * ItemStack item = buy.create("item", "Diamond", "price", 10);
+ * }</pre>
+ */
+public class ItemTemplate {
+  private static final Pattern PLACEHOLDER = Pattern.compile("\\{([a-zA-Z0-9_.-]+)}");
+  private final ItemStack prototype;
+  @Nullable private final Line name;
+  private final List<Line> lore;
+  private final boolean hasPlaceholders;
+
+  private ItemTemplate(Builder builder) {
+    this.name = builder.name == null ? null : Line.compile(builder.name);
+    List<Line> lore = new ArrayList<>(builder.lore.size());
+    for (String line : builder.lore) lore.add(Line.compile(line));
+    this.lore = Collections.unmodifiableList(lore);
+    boolean hasPlaceholders = name != null && name.hasPlaceholders();
+    for (Line line : this.lore) hasPlaceholders |= line.hasPlaceholders();
+    this.hasPlaceholders = hasPlaceholders;
+    ItemStack item = new ItemStack(builder.type, builder.amount);
+    ItemMeta im = item.getItemMeta();
+    if (im != null) {
+      if (name != null) im.displayName(name.fill(Map.of()));
+      if (!lore.isEmpty()) im.lore(fillLore(Map.of()));
+      if (builder.flags.length > 0) im.addItemFlags(builder.flags);
+      if (builder.meta != null) builder.meta.accept(im);
+      item.setItemMeta(im);
+    }
+    this.prototype = item;
+  }
+
+  /**
+   * This method creates a new builder
+   * @param type The Material type of the item
+   * @return The builder
+   */
+  @NotNull public static Builder builder(@NotNull Material type) {
+    return new Builder(type);
+  }
+
+  /**
+   * This method creates a copy of the item, placeholders are left as they were written
+   * @return A new ItemStack
+   */
+  @NotNull public ItemStack create() {
+    return prototype.clone();
+  }
+  /**
+   * This method creates a copy of the item with its placeholders filled in
+   * @param values The value of every placeholder by its name, placeholders without a value are left as they were written
+   * @return A new ItemStack
+   */
+  @NotNull public ItemStack create(@NotNull Map<String, ?> values) {
+    ItemStack item = prototype.clone();
+    if (!hasPlaceholders || values.isEmpty()) return item;
+    ItemMeta im = item.getItemMeta();
+    if (name != null && name.hasPlaceholders()) im.displayName(name.fill(values));
+    if (!lore.isEmpty()) im.lore(fillLore(values));
+    item.setItemMeta(im);
+    return item;
+  }
+  /**
+   * This method creates a copy of the item with its placeholders filled in
+   * @param pairs The name of a placeholder followed by its value, e.g. {@code "price", 10, "item", "Diamond"}
+   * @return A new ItemStack
+   */
+  @NotNull public ItemStack create(@NotNull Object... pairs) {
+    if (pairs.length < 2) return create();
+    HashMap<String, Object> values = new HashMap<>(pairs.length);
+    for (int i = 0; i + 1 < pairs.length; i += 2) values.put(String.valueOf(pairs[i]), pairs[i + 1]);
+    return create(values);
+  }
+  /**
+   * @return Whether the name or lore contains placeholders
+   */
+  public boolean hasPlaceholders() {
+    return hasPlaceholders;
+  }
+
+  private List<Component> fillLore(Map<String, ?> values) {
+    List<Component> result = new ArrayList<>(lore.size());
+    for (Line line : lore) result.add(line.fill(values));
+    return result;
+  }
+
+  /**
+   * This class is a line of text split into the parsed text and the placeholders in between
+   * @param parts The parsed parts, a {@link String} is the name of a placeholder
+   * @param styles The style of every placeholder, at the same index as its name
+   */
+  private record Line(Object[] parts, Style[] styles, @Nullable Component parsed) {
+    static Line compile(String s) {
+      Matcher matcher = PLACEHOLDER.matcher(s);
+      if (!matcher.find()) return new Line(new Object[0], new Style[0], TextUtil.parseMcString(s));
+      ArrayList<Object> parts = new ArrayList<>();
+      ArrayList<Style> styles = new ArrayList<>();
+      int start = 0;
+      String codes = "";
+      do {
+        String text = s.substring(start, matcher.start());
+        if (!text.isEmpty()) {
+          parts.add(TextUtil.parseMcString(codes + text));
+          styles.add(null);
+        }
+        codes = TextUtil.getActiveCodes(codes + text);
+        parts.add(matcher.group(1));
+        styles.add(TextUtil.getLastStyle(TextUtil.parseMcString(codes + "x")));
+        start = matcher.end();
+      } while (matcher.find());
+      String text = s.substring(start);
+      if (!text.isEmpty()) {
+        parts.add(TextUtil.parseMcString(codes + text));
+        styles.add(null);
+      }
+      return new Line(parts.toArray(), styles.toArray(new Style[0]), null);
+    }
+
+    boolean hasPlaceholders() {
+      return parsed == null;
+    }
+
+    Component fill(Map<String, ?> values) {
+      if (parsed != null) return parsed;
+      TextComponent.Builder line = Component.text();
+      for (int i = 0; i < parts.length; i++) {
+        if (parts[i] instanceof String placeholder) {
+          Object value = values.get(placeholder);
+          line.append(Component.text(value == null ? "{" + placeholder + "}" : String.valueOf(value), styles[i]));
+        } else {
+          line.append((Component) parts[i]);
+        }
+      }
+      return line.build();
+    }
+  }
+
+  /**
+   * This class builds an {@link ItemTemplate}, every method returns the same builder
+   */
+  public static class Builder {
+    private final Material type;
+    private int amount = 1;
+    private String name;
+    private final List<String> lore = new ArrayList<>();
+    private ItemFlag[] flags = new ItemFlag[0];
+    private Consumer<ItemMeta> meta;
+
+    private Builder(Material type) {
+      this.type = type;
+    }
+
+    /**
+     * @param amount The amount of the item
+     */
+    public Builder amount(int amount) {
+      this.amount = amount;
+      return this;
+    }
+    /**
+     * @param name The display name, parsed with {@link TextUtil#parseMcString(String)}
+     */
+    public Builder name(@Nullable String name) {
+      this.name = name;
+      return this;
+    }
+    /**
+     * @param lines The lines to add to the lore, parsed with {@link TextUtil#parseMcString(String)}
+     */
+    public Builder lore(@NotNull String... lines) {
+      Collections.addAll(lore, lines);
+      return this;
+    }
+    /**
+     * @param lines The lines to add to the lore, parsed with {@link TextUtil#parseMcString(String)}
+     */
+    public Builder lore(@NotNull List<String> lines) {
+      lore.addAll(lines);
+      return this;
+    }
+    /**
+     * @param flags The flags to hide parts of the tooltip with
+     */
+    public Builder flags(@NotNull ItemFlag... flags) {
+      this.flags = flags.clone();
+      return this;
+    }
+    /**
+     * @param meta Changes the ItemMeta once when the template is built, e.g. to add enchantments
+     */
+    public Builder meta(@Nullable Consumer<ItemMeta> meta) {
+      this.meta = meta;
+      return this;
+    }
+    /**
+     * This method parses the text and builds the item
+     * @return The template
+     */
+    @NotNull public ItemTemplate build() {
+      return new ItemTemplate(this);
+    }
+  }
+}
@@ -1,18 +1,26 @@
 package net.hobbnetwork.utils;
 
+import net.hobbnetwork.custom.BoundedCache;
 import net.kyori.adventure.text.Component;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.inventory.meta.SkullMeta;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
 
 import static net.hobbnetwork.utils.TextUtil.parseMcString;
 
 public class ItemUtil {
+  /**
+   * The templates that are kept by key, see {@link #getTemplate(String, Function)}
+   */
+  private static final BoundedCache<String, ItemTemplate> templates = new BoundedCache<>(1024);
 
   /**
    * This method creates an ItemStack with the given Material type and Component data.<br>
@@ -87,4 +95,39 @@ public class ItemUtil {
     skullMeta.setOwningPlayer(player);
     itemStack.setItemMeta(skullMeta);
   }
+
+  /**
+   * This method starts building an {@link ItemTemplate}, an item that is parsed once and then copied.<br>
+   * Use it instead of {@link #getItemStack(Material, String...)} for items that are handed out often, like GUI buttons
+   * @param type The Material type of the item
+   * @return The builder of the template
+   */
+  @NotNull static public ItemTemplate.Builder template(@NotNull Material type) {
+    return ItemTemplate.builder(type);
+  }
+  /**
+   * This method gets a kept template, or builds and keeps it the first time.<br>
+   * Example: {@code ItemUtil.getTemplate("shop.buy", (k) -> ItemUtil.template(Material.EMERALD).name("&aBuy").build()).create()}
+   * @param key The key of the template
+   * @param loader Builds the template when it is not kept yet
+   * @return The template
+   */
+  @NotNull static public ItemTemplate getTemplate(@NotNull String key, @NotNull Function<String, ItemTemplate> loader) {
+    return templates.get(key, loader);
+  }
+  /**
+   * @param key The key of the template
+   * @return The kept template, or null if it was never built or was forgotten
+   */
+  @Nullable static public ItemTemplate getTemplate(@NotNull String key) {
+    return templates.get(key);
+  }
+  /**
+   * This method forgets a kept template, e.g. after the config it was built from was reloaded
+   * @param key The key of the template, or null to forget all templates
+   */
+  static public void invalidateTemplate(@Nullable String key) {
+    if(key == null) templates.invalidateAll();
+    else templates.invalidate(key);
+  }
 }
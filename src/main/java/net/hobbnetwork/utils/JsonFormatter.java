@@ -0,0 +1,115 @@
+package net.hobbnetwork.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.format.DateTimeFormatter;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+
+/**
+ * This formatter writes every record as one line of JSON, so log shippers can read the file without parsing ANSI colors.<br>
+ * A record looks like this (on a single line):
+ * <pre>{@code
+ * {"timestamp":"2024-01-01T12:00:00.000Z","millis":1704110400000,"level":"SEVERE","logLevel":"ERROR","plugin":"Hobb-Utils",
+ *  "thread":"Server thread","message":"Could not set value!","throwable":{"class":"java.sql.SQLException","message":"...","stackTrace":"..."}}
+ * }</pre>
+ * The JSON is written straight into a reused buffer, handlers call {@link #format(LogRecord)} while holding their own lock
+ */
+public class JsonFormatter extends Formatter {
+  private final String pluginName;
+  private final StringBuilder buffer = new StringBuilder(512);
+  private final StringWriter stackTrace = new StringWriter(1024);
+  private final PrintWriter stackTraceWriter = new PrintWriter(stackTrace);
+
+  /**
+   * This constructor creates a new JsonFormatter
+   * @param pluginName The name of the plugin, written in every record
+   */
+  public JsonFormatter(@NotNull String pluginName) {
+    this.pluginName = pluginName;
+  }
+
+  @Override
+  public String format(LogRecord record) {
+    StringBuilder json = buffer;
+    json.setLength(0);
+    json.append("{\"timestamp\":\"");
+    DateTimeFormatter.ISO_INSTANT.formatTo(record.getInstant(), json);
+    json.append("\",\"millis\":").append(record.getMillis());
+    json.append(",\"level\":\"").append(record.getLevel().getName());
+    json.append("\",\"logLevel\":\"").append(LogUtil.LogLevel.translate(record.getLevel()).getName());
+    json.append("\",\"plugin\":");
+    appendString(json, pluginName);
+    json.append(",\"thread\":");
+    appendString(json, getThreadName(record));
+    json.append(",\"message\":");
+    String message = formatMessage(record);
+    int end = message.length();
+    // LogUtil ends every part of a message with a line break, which is not part of the message
+    while(end > 0 && message.charAt(end - 1) == '\n') end--;
+    appendString(json, message, end);
+    Throwable thrown = record.getThrown();
+    if(thrown != null) {
+      json.append(",\"throwable\":{\"class\":");
+      appendString(json, thrown.getClass().getName());
+      json.append(",\"message\":");
+      if(thrown.getMessage() == null) json.append("null");
+      else appendString(json, thrown.getMessage());
+      json.append(",\"stackTrace\":");
+      stackTrace.getBuffer().setLength(0);
+      thrown.printStackTrace(stackTraceWriter);
+      stackTraceWriter.flush();
+      appendString(json, stackTrace.getBuffer());
+      json.append('}');
+    }
+    json.append("}\n");
+    String formatted = json.toString();
+    if(json.capacity() > 65_536) json.trimToSize();
+    if(stackTrace.getBuffer().capacity() > 65_536) stackTrace.getBuffer().trimToSize();
+    return formatted;
+  }
+
+  /**
+   * @return The name of the thread that logged the record, if it is known
+   */
+  private static String getThreadName(LogRecord record) {
+    if(record instanceof LogUtil.ThreadLogRecord threadRecord) return threadRecord.getThreadName();
+    Thread current = Thread.currentThread();
+    return current.threadId() == record.getLongThreadID() ? current.getName() : "Thread-" + record.getLongThreadID();
+  }
+
+  private static void appendString(StringBuilder json, CharSequence s) {
+    appendString(json, s, s.length());
+  }
+
+  /**
+   * This method appends a JSON string, escaping quotes, backslashes and control characters
+   * @param json The buffer to append to
+   * @param s The characters to append
+   * @param end The amount of characters of s to append
+   */
+  private static void appendString(StringBuilder json, CharSequence s, int end) {
+    json.append('"');
+    for(int i = 0; i < end; i++) {
+      char c = s.charAt(i);
+      switch(c) {
+        case '"' -> json.append("\\\"");
+        case '\\' -> json.append("\\\\");
+        case '\n' -> json.append("\\n");
+        case '\r' -> json.append("\\r");
+        case '\t' -> json.append("\\t");
+        default -> {
+          if(c < 0x20) {
+            json.append("\\u00");
+            json.append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+          } else {
+            json.append(c);
+          }
+        }
+      }
+    }
+    json.append('"');
+  }
+}
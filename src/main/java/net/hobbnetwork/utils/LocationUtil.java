@@ -1,7 +1,9 @@
 package net.hobbnetwork.utils;
 
 import org.bukkit.Location;
+import org.bukkit.World;
 
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public class LocationUtil {
@@ -15,16 +17,12 @@ public class LocationUtil {
    */
   static public boolean isInBetween(@Nullable Location l, @Nullable Location sq1, @Nullable Location sq2) {
     if(sq1 == null || sq2 == null || l == null) return false;
-    if(sq1.getWorld().equals(sq2.getWorld())){ // Check for worldName location1, location2
-      if(l.getWorld().equals(sq1.getWorld())){ // Check for worldName targetLocation, location1
-        if((l.getBlockX() >= sq1.getBlockX() && l.getBlockX() <= sq2.getBlockX()) || (l.getBlockX() <= sq1.getBlockX() && l.getBlockX() >= sq2.getBlockX())){ // Check X value
-          if((l.getBlockZ() >= sq1.getBlockZ() && l.getBlockZ() <= sq2.getBlockZ()) || (l.getBlockZ() <= sq1.getBlockZ() && l.getBlockZ() >= sq2.getBlockZ())){ // Check Z value
-            return (l.getBlockY() >= sq1.getBlockY() && l.getBlockY() <= sq2.getBlockY()) || (l.getBlockY() <= sq1.getBlockY() && l.getBlockY() >= sq2.getBlockY()); // Check Y value
-          }
-        }
-      }
-    }
-    return false;
+    World world = sq1.getWorld();
+    if(world == null || !world.equals(sq2.getWorld()) || !world.equals(l.getWorld())) return false;
+    return GeometryUtil.cuboidContainsUnordered(
+      sq1.getBlockX(), sq1.getBlockY(), sq1.getBlockZ(),
+      sq2.getBlockX(), sq2.getBlockY(), sq2.getBlockZ(),
+      l.getBlockX(), l.getBlockY(), l.getBlockZ());
   }
   /**
    * Gets the horizontal distance between two locations, thus ignoring the y value
@@ -34,21 +32,41 @@ public class LocationUtil {
    */
   static public double getHorizontalDistance(@Nullable Location loc1, @Nullable Location loc2) {
     if(loc1 == null || loc2 == null) return 0;
-    return Math.sqrt(Math.pow(loc1.getX()-loc2.getX(), 2)+Math.pow(loc1.getZ()-loc2.getZ(), 2));
+    return Math.sqrt(GeometryUtil.horizontalDistanceSquared(loc1.getX(), loc1.getZ(), loc2.getX(), loc2.getZ()));
+  }
+  /**
+   * Checks if two locations are within a horizontal distance of each other, thus ignoring the y value.
+   * Cheaper than comparing {@link #getHorizontalDistance(Location, Location)}, as no square root is needed
+   * @param loc1 The first location
+   * @param loc2 The second location
+   * @param distance The maximum distance
+   * @return True if the locations are at most the distance apart, false if either location is null
+   */
+  static public boolean isWithinHorizontalDistance(@Nullable Location loc1, @Nullable Location loc2, double distance) {
+    if(loc1 == null || loc2 == null) return false;
+    return GeometryUtil.isWithinHorizontal(loc1.getX(), loc1.getZ(), loc2.getX(), loc2.getZ(), distance);
+  }
+  /**
+   * Checks if two locations are in the same world and within a distance of each other, e.g. for proximity checks against every online player
+   * @param loc1 The first location
+   * @param loc2 The second location
+   * @param distance The maximum distance
+   * @return True if the locations are at most the distance apart, false if either location is null or they are in different worlds
+   */
+  static public boolean isWithinDistance(@Nullable Location loc1, @Nullable Location loc2, double distance) {
+    if(loc1 == null || loc2 == null || loc1.getWorld() == null || !loc1.getWorld().equals(loc2.getWorld())) return false;
+    return GeometryUtil.isWithin(loc1.getX(), loc1.getY(), loc1.getZ(), loc2.getX(), loc2.getY(), loc2.getZ(), distance);
   }
   /**
    * Checks if two locations are nearly equal
-   * It checks if the worlds are the same and if the x, y, and z values are the same
+   * It checks if the worlds are the same and if the x, y, and z values are the same, using {@link GeometryUtil#isSameIntPosition}
    * @param loc1 The first location
    * @param loc2 The second location
-   * @return True if the coordinates are the same as integers, the worlds are the same, and the locations are not null
+   * @return True if the coordinates are the same as integers, the worlds are the same, and the locations and worlds are not null
    */
   static public boolean isNearlyEqualTo(@Nullable Location loc1, @Nullable Location loc2) {
-    return loc1 != null && loc2 != null &&
-      loc1.getWorld().equals(loc2.getWorld()) &&
-      (int)loc1.getX() == (int)loc2.getX() &&
-      (int)loc1.getY() == (int)loc2.getY() &&
-      (int)loc1.getZ() == (int)loc2.getZ();
+    if(loc1 == null || loc2 == null || loc1.getWorld() == null || !loc1.getWorld().equals(loc2.getWorld())) return false;
+    return GeometryUtil.isSameIntPosition(loc1.getX(), loc1.getY(), loc1.getZ(), loc2.getX(), loc2.getY(), loc2.getZ());
   }
   /**
    * Converts a location to an integer location by casting the doubles to integers
@@ -58,7 +76,32 @@ public class LocationUtil {
    */
   @Nullable static public Location getIntLocation(@Nullable Location loc) {
     if(loc == null) return null;
-    return new Location(loc.getWorld(), (int)loc.getX(), (int)loc.getY(), (int)loc.getZ(), loc.getYaw(), loc.getPitch());
+    return getIntLocation(loc, new Location(loc.getWorld(), 0, 0, 0));
+  }
+  /**
+   * Converts a location to an integer location by casting the doubles to integers, writing the result into an existing location
+   * so a hot loop can reuse one Location object. It keeps the yaw and pitch the same
+   * @param loc Location to convert
+   * @param into Location to write the result into, can be the same as loc
+   * @return The into location, or null if loc is null
+   */
+  @Nullable static public Location getIntLocation(@Nullable Location loc, @NotNull Location into) {
+    if(loc == null) return null;
+    into.setWorld(loc.getWorld());
+    into.setX((int)loc.getX());
+    into.setY((int)loc.getY());
+    into.setZ((int)loc.getZ());
+    into.setYaw(loc.getYaw());
+    into.setPitch(loc.getPitch());
+    return into;
+  }
+  /**
+   * Gets the block key of a location, see {@link GeometryUtil#packBlock(int, int, int)}
+   * @param loc Location to get the block key of
+   * @return The block key, which does not include the world
+   */
+  static public long getBlockKey(@NotNull Location loc) {
+    return GeometryUtil.packBlock(loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
   }
   /**
    * Converts a {@link String} to a {@link Location}
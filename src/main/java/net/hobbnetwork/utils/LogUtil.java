@@ -1,58 +1,134 @@
 package net.hobbnetwork.utils;
 
 import lombok.Getter;
+import lombok.Setter;
 import net.hobbnetwork.managers.HookManager;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 import java.util.logging.*;
 
+/**
+ * This class is the logging pipeline of a {@link HookManager}, it is created once per HookManager.<br>
+ * The logger of the plugin only gets a single handler that puts every record in a bounded queue and returns right away.
+ * A background thread takes the records from the queue, formats them and writes them to the console (and the log file),
+ * so logging from the main thread never waits for the console or the disk.<br>
+ * When the queue is full, the {@link OverflowPolicy} decides whether the record is dropped or the caller waits for space.
+ */
 public class LogUtil {
+  /**
+   * The default maximum amount of records waiting to be written
+   */
+  public static final int DEFAULT_CAPACITY = 8192;
+  private static final int BATCH_SIZE = 256;
+  private static final long POLL_MILLIS = 100;
+  private static final long CLOSE_TIMEOUT_MILLIS = 5_000;
   private final HookManager hookManager;
   private final boolean logToFile;
+  private final Logger logger;
+  private final ArrayBlockingQueue<LogRecord> queue;
+  /**
+   * The handlers that actually write the records, only used by the consumer thread while it is running
+   */
+  private final List<Handler> targets = new ArrayList<>(2);
+  private final Thread consumer;
+  private RollingFileHandler fileHandler;
+  private volatile boolean running = true;
+  /**
+   * What happens to a record when the queue is full, the default is {@link OverflowPolicy#DROP}
+   */
+  @Getter @Setter private volatile OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+  /**
+   * The format of the log file, see {@link #setOutputFormat(OutputFormat)}
+   */
+  @Getter private volatile OutputFormat outputFormat;
+  private volatile int minimumLevel = Level.ALL.intValue();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder written = new LongAdder();
 
   public LogUtil(HookManager hookManager) {
+    this(hookManager, DEFAULT_CAPACITY);
+  }
+  /**
+   * This constructor creates the logging pipeline and starts its consumer thread
+   * @param hookManager The HookManager object
+   * @param capacity The maximum amount of records waiting to be written
+   */
+  public LogUtil(HookManager hookManager, int capacity) {
     this.hookManager = hookManager;
     this.logToFile = hookManager.isLoggingToFile();
+    this.outputFormat = hookManager.isJsonLogging() ? OutputFormat.JSON : OutputFormat.TEXT;
+    this.logger = hookManager.isHooked() ? hookManager.getPlugin().getLogger() : Logger.getGlobal();
+    this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    String name = hookManager.isHooked() ? hookManager.getPlugin().getName() : "global";
+    this.consumer = Thread.ofPlatform().name("hobb-log-" + name).daemon(true).unstarted(this::consume);
     setupLogger();
+    consumer.start();
   }
   /**
    * This method sets up the logger for the plugin
    */
   private void setupLogger() {
-    Logger logger = hookManager.isHooked() ? hookManager.getPlugin().getLogger() : Logger.getGlobal();
-    // Remove existing handlers to avoid duplicate logging
+    // Remove existing handlers to avoid duplicate logging, closing them also stops an older pipeline
     for (Handler handler : logger.getHandlers()) {
       logger.removeHandler(handler);
+      if(handler instanceof QueueHandler) handler.close();
     }
     logger.setUseParentHandlers(false);
     ConsoleHandler consoleHandler = new ConsoleHandler();
     consoleHandler.setLevel(Level.ALL);
-    consoleHandler.setFormatter(new ColorFormatter());
-    logger.addHandler(consoleHandler);
+    consoleHandler.setFormatter(new ColorFormatter(hookManager));
+    targets.add(consoleHandler);
 
     if (logToFile) {
       try {
-        FileHandler fileHandler = getFileHandler();
-        logger.addHandler(fileHandler);
+        fileHandler = createFileHandler();
+        targets.add(fileHandler);
       } catch (IOException e) {
-        logger.log(Level.SEVERE, "Failed to initialize file handler for logging", e);
+        consoleHandler.publish(new LogRecord(Level.SEVERE, "Failed to initialize file handler for logging: " + e));
       }
     }
+    QueueHandler queueHandler = new QueueHandler();
+    queueHandler.setLevel(Level.ALL);
+    logger.addHandler(queueHandler);
     logger.setLevel(Level.ALL);
   }
-  private @NotNull FileHandler getFileHandler() throws IOException {
+  private @NotNull RollingFileHandler createFileHandler() throws IOException {
     File logDir = new File(hookManager.getPlugin().getDataFolder(), "logs");
-    if (!logDir.exists() && !logDir.mkdirs()) {
-      throw new IllegalStateException("Failed to create log directory: " + logDir.getPath());
-    }
-    // Create a new log file every day and keep at most 10 previous logs
-    FileHandler fileHandler = new FileHandler(new File(logDir, "plugin-%g.log").getPath(), 0, 10, true);
+    // Rotate every day and at 10 MB, and keep the compressed logs of the last 14 days
+    RollingFileHandler fileHandler = new RollingFileHandler(logDir, "plugin");
     fileHandler.setLevel(Level.ALL);
-    fileHandler.setFormatter(new SimpleFormatter());
+    fileHandler.setFormatter(createFileFormatter());
+    return fileHandler;
+  }
+  /**
+   * This method sets the format of the log file, the console always uses the colored text format
+   * @param format The format of the log file
+   */
+  public void setOutputFormat(@NotNull OutputFormat format) {
+    this.outputFormat = format;
+    if(fileHandler != null) fileHandler.setFormatter(createFileFormatter());
+  }
+  private Formatter createFileFormatter() {
+    return outputFormat == OutputFormat.JSON
+      ? new JsonFormatter(hookManager.getPlugin().getName())
+      : new SimpleFormatter();
+  }
+  /**
+   * @return The handler of the log file, which can be used to change its rotation and retention, or null if the plugin does not log to a file
+   */
+  public @Nullable RollingFileHandler getFileHandler() {
     return fileHandler;
   }
   /**
@@ -63,15 +139,206 @@ public class LogUtil {
    * @see LogLevel
    */
   public void log(Level lvl, Object... message) {
-    Logger logger = hookManager.getPlugin().getLogger();
+    if(!isLoggable(lvl)) return;
     StringBuilder msg = new StringBuilder();
     Throwable throwable = null;
     for (Object e : message) {
       if (e instanceof Throwable t) throwable = t;
       else msg.append(e.toString()).append("\n");
     }
-    if (throwable != null) logger.log(lvl, msg.toString(), throwable);
-    else logger.log(lvl, msg.toString());
+    publish(lvl, msg.toString(), throwable);
+  }
+
+  /**
+   * This method logs a message that is only built if the level is enabled, so disabled levels cost nearly nothing
+   *
+   * @param lvl     The level of the message
+   * @param message The supplier of the message, which is not called when the level is disabled
+   * @see #setMinimumLevel(Level)
+   */
+  public void log(Level lvl, Supplier<String> message) {
+    if(!isLoggable(lvl)) return;
+    publish(lvl, message.get(), null);
+  }
+  /**
+   * This method creates the record on the calling thread, so the name of that thread is known when the record is written
+   */
+  private void publish(Level lvl, String message, @Nullable Throwable throwable) {
+    ThreadLogRecord record = new ThreadLogRecord(lvl, message);
+    record.setLoggerName(logger.getName());
+    record.setThrown(throwable);
+    logger.log(record);
+  }
+  /**
+   * @param lvl The level to check
+   * @return Whether messages of the level are written
+   */
+  public boolean isLoggable(Level lvl) {
+    return lvl.intValue() >= minimumLevel;
+  }
+  /**
+   * This method sets the lowest level that is still written, e.g. {@link Level#INFO} disables
+   * {@link LogLevel#DEBUG} and {@link LogLevel#TEST}. The plugin's logger filters on the same level
+   * @param lvl The lowest level to write, {@link Level#ALL} writes everything
+   */
+  public void setMinimumLevel(Level lvl) {
+    this.minimumLevel = lvl.intValue();
+    logger.setLevel(lvl);
+  }
+  /**
+   * @return The lowest level that is still written
+   */
+  public Level getMinimumLevel() {
+    return logger.getLevel();
+  }
+
+  /**
+   * This method puts a record in the queue, or handles the overflow if the queue is full
+   * @param record The record to write
+   */
+  private void enqueue(LogRecord record) {
+    // After closing, and on the consumer thread itself, there is no one to wait for, so the record is written right away
+    if(!running || Thread.currentThread() == consumer) {
+      write(record);
+      return;
+    }
+    if(queue.offer(record)) return;
+    if(overflowPolicy == OverflowPolicy.BLOCK) {
+      try {
+        queue.put(record);
+        return;
+      } catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    dropped.increment();
+  }
+
+  /**
+   * This method is the loop of the consumer thread, it writes the records in batches until the pipeline is closed
+   */
+  private void consume() {
+    List<LogRecord> batch = new ArrayList<>(BATCH_SIZE);
+    while(running || !queue.isEmpty()) {
+      try {
+        LogRecord first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if(first == null) continue;
+        batch.add(first);
+        queue.drainTo(batch, BATCH_SIZE - 1);
+        for(LogRecord record : batch) write(record);
+        batch.clear();
+        for(Handler target : targets) target.flush();
+      } catch(InterruptedException e) {
+        batch.clear();
+        if(!running) break;
+      } catch(RuntimeException e) {
+        // A broken record or handler should never stop the logging of everything after it
+        batch.clear();
+        System.err.println("[LogUtil] Could not write log records: " + e);
+      }
+    }
+  }
+
+  private void write(LogRecord record) {
+    synchronized(targets) {
+      for(Handler target : targets) target.publish(record);
+    }
+    written.increment();
+  }
+
+  /**
+   * This method writes all records that are still waiting and closes the console and file handlers.
+   * Records logged after closing are written right away on the calling thread
+   */
+  public void close() {
+    if(!running) return;
+    running = false;
+    try {
+      consumer.join(CLOSE_TIMEOUT_MILLIS);
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    LogRecord record;
+    while((record = queue.poll()) != null) write(record);
+    synchronized(targets) {
+      for(Handler target : targets) {
+        target.flush();
+        if(target instanceof RollingFileHandler) target.close();
+      }
+    }
+  }
+
+  /**
+   * @return The amount of records that are waiting to be written
+   */
+  public int getPendingCount() {
+    return queue.size();
+  }
+  /**
+   * @return The amount of records that were dropped because the queue was full
+   */
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+  /**
+   * @return The amount of records that have been written
+   */
+  public long getWrittenCount() {
+    return written.sum();
+  }
+
+  /**
+   * What happens to a record that is logged while the queue is full
+   * <ul>
+   *   <li>{@link OverflowPolicy#DROP}  - The record is dropped and counted, the caller never waits</li>
+   *   <li>{@link OverflowPolicy#BLOCK} - The caller waits until the consumer made space, no record is lost</li>
+   * </ul>
+   */
+  public enum OverflowPolicy {
+    DROP,
+    BLOCK
+  }
+
+  /**
+   * The formats of the log file
+   * <ul>
+   *   <li>{@link OutputFormat#TEXT} - Human readable lines, see {@link SimpleFormatter}</li>
+   *   <li>{@link OutputFormat#JSON} - One JSON object per line, see {@link JsonFormatter}</li>
+   * </ul>
+   */
+  public enum OutputFormat {
+    TEXT,
+    JSON
+  }
+
+  /**
+   * A record that remembers the name of the thread that created it, since records are written on the logging thread
+   */
+  @Getter
+  public static class ThreadLogRecord extends LogRecord {
+    private final String threadName;
+
+    public ThreadLogRecord(Level level, String msg) {
+      super(level, msg);
+      this.threadName = Thread.currentThread().getName();
+    }
+  }
+
+  /**
+   * The only handler of the plugin's logger, it hands the records to the consumer thread
+   */
+  private class QueueHandler extends Handler {
+    @Override
+    public void publish(LogRecord record) {
+      if(!isLoggable(record)) return;
+      enqueue(record);
+    }
+    @Override
+    public void flush() {}
+    @Override
+    public void close() {
+      LogUtil.this.close();
+    }
   }
 
   private static String getStackTrace(Throwable t) {
@@ -134,36 +401,69 @@ public class LogUtil {
 
   }
 
-  private class ColorFormatter extends Formatter {
+  /**
+   * This formatter writes every line of a record in the color of its {@link LogLevel}, behind the colored name of the plugin.<br>
+   * The escape sequences are built once per plugin and per level instead of for every line
+   */
+  public static class ColorFormatter extends Formatter {
+    private static final String RESET = "\u001B[0m";
+    private final boolean debug;
+    /**
+     * The colored plugin name, e.g. "[Hobb-Utils] "
+     */
+    private final String pluginPrefix;
+    private final ConcurrentHashMap<LogLevel, String> linePrefixes = new ConcurrentHashMap<>();
+    /**
+     * The buffer of the formatted record, this is only safe because handlers call format while holding their own lock
+     */
+    private final StringBuilder buffer = new StringBuilder(256);
+
+    public ColorFormatter(HookManager hookManager) {
+      this.debug = hookManager.isDebug();
+      this.pluginPrefix = toAnsi(hookManager.getPrefixHex()) + "[" + hookManager.getPlugin().getName() + "]" + RESET + " ";
+    }
+
+    /**
+     * This method translates a hex color to a true color ANSI escape sequence
+     * @param hex The color, with or without a leading #
+     * @return The escape sequence that sets the foreground color
+     */
+    public static String toAnsi(String hex) {
+      String color = hex.startsWith("#") ? hex.substring(1) : hex;
+      return "\u001B[38;2;" + Integer.parseInt(color.substring(0, 2), 16) + ";"
+        + Integer.parseInt(color.substring(2, 4), 16) + ";"
+        + Integer.parseInt(color.substring(4, 6), 16) + "m";
+    }
+
+    private String getLinePrefix(LogLevel lvl) {
+      return linePrefixes.computeIfAbsent(lvl, (l) -> pluginPrefix + toAnsi(l.getColor()));
+    }
+
     @Override
     public String format(LogRecord record) {
-      String color = (LogLevel.translate(record.getLevel())).getColor();
-      String pluginName = hookManager.getPlugin().getName();
-      String pluginColor = String.format("\u001B[38;2;%s;%s;%sm",
-        Integer.valueOf(hookManager.getPrefixHex().replace("#", "").substring(0, 2), 16),
-        Integer.valueOf(hookManager.getPrefixHex().replace("#", "").substring(2, 4), 16),
-        Integer.valueOf(hookManager.getPrefixHex().replace("#", "").substring(4, 6), 16)
-      );
-      String resetColor = "\u001B[0m";
-      String[] lines = formatMessage(record).split("\n");
-      StringBuilder formattedMessage = new StringBuilder();
-      for (String line : lines) {
-        formattedMessage.append(String.format("%s[%s]%s \u001B[38;2;%s;%s;%sm%s%s\n",
-          pluginColor, pluginName, resetColor,
-          Integer.valueOf(color.substring(0, 2), 16),
-          Integer.valueOf(color.substring(2, 4), 16),
-          Integer.valueOf(color.substring(4, 6), 16),
-          line, resetColor));
+      String linePrefix = getLinePrefix(LogLevel.translate(record.getLevel()));
+      String message = formatMessage(record);
+      StringBuilder formattedMessage = buffer;
+      formattedMessage.setLength(0);
+      // Trailing line breaks do not get a line of their own
+      int end = message.length();
+      while(end > 0 && message.charAt(end - 1) == '\n') end--;
+      int start = 0;
+      do {
+        int lineEnd = message.indexOf('\n', start);
+        if(lineEnd < 0 || lineEnd > end) lineEnd = end;
+        formattedMessage.append(linePrefix).append(message, start, lineEnd).append(RESET).append('\n');
+        start = lineEnd + 1;
+      } while(start < end);
+      if(record.getThrown() != null) {
+        // Add a colored Throwable if present
+        formattedMessage.append(linePrefix)
+          .append(debug ? getStackTrace(record.getThrown()) : record.getThrown().toString())
+          .append(RESET).append('\n');
       }
-      if(record.getThrown() == null) return formattedMessage.toString();
-      // Add a colored Throwable if present
-      formattedMessage.append(String.format("%s[%s]%s \u001B[38;2;%s;%s;%sm%s%s\n",
-        pluginColor, pluginName, resetColor,
-        Integer.valueOf(color.substring(0, 2), 16),
-        Integer.valueOf(color.substring(2, 4), 16),
-        Integer.valueOf(color.substring(4, 6), 16),
-        hookManager.isDebug() ? getStackTrace(record.getThrown()) : record.getThrown(), resetColor));
-      return formattedMessage.toString();
+      String formatted = formattedMessage.toString();
+      if(formattedMessage.capacity() > 16_384) formattedMessage.trimToSize();
+      return formatted;
     }
   }
 
@@ -5,6 +5,7 @@ import net.hobbnetwork.managers.HookManager;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.Rotation;
+import org.bukkit.Tag;
 import org.bukkit.block.ShulkerBox;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
@@ -18,7 +19,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This is a very complicated class that offers methods to handle "mechanics" in the game
@@ -127,6 +130,7 @@ public class MechanicsUtil {
     ItemStack i2 = p.getInventory().getItemInOffHand();
     p.getInventory().setItemInMainHand(i2);
     p.getInventory().setItemInOffHand(i1);
+    InventoryIndex.invalidate(p);
   }
   /**
    * This method swaps the items in the helmet and main hand of a player
@@ -138,9 +142,11 @@ public class MechanicsUtil {
     ItemStack i2 = p.getInventory().getItem(EquipmentSlot.HEAD);
     p.getInventory().setItemInMainHand(i2);
     p.getInventory().setItem(EquipmentSlot.HEAD, i1);
+    InventoryIndex.invalidate(p);
   }
   /**
-   * This method checks if an inventory contains a certain item stack with a certain amount
+   * This method checks if an inventory contains a certain item stack with a certain amount.<br>
+   * The inventory is scanned once by an {@link InventoryIndex}, including its shulker boxes and bundles
    * @param pi The player inventory to check
    * @param is The item stack to check for
    * @param amount The amount to check for
@@ -150,13 +156,55 @@ public class MechanicsUtil {
   static public boolean inventoryContainsItemStack(@Nullable PlayerInventory pi, @Nullable  ItemStack is, int amount, boolean... checkBundles) {
     if(pi == null || is == null) return false;
     boolean checkBundlesFlag = checkBundles.length > 0 && checkBundles[0];
-    for(ItemStack item : pi) {
-      if(item == null) continue;
-      if(item.getType().equals(is.getType()) && item.getAmount() >= amount
-        || shulkerContainsItemStack(item, is, amount)
-        || (checkBundlesFlag && bundleContainsItemStack(item, is, amount))) return true;
-    }
-    return false;
+    return InventoryIndex.build(pi).hasStack(is.getType(), amount, checkBundlesFlag);
+  }
+  /**
+   * This method checks if an inventory contains an amount of a Material, adding up all stacks in the inventory,
+   * its shulker boxes and, if wanted, its bundles
+   * @param pi The player inventory to check
+   * @param type The Material to check for
+   * @param amount The total amount to check for
+   * @param checkBundles Whether to count the items in (nested in shulker boxes) bundles as well
+   * @return True if the inventory contains the amount in total
+   */
+  static public boolean inventoryContainsAmount(@Nullable PlayerInventory pi, @Nullable Material type, int amount, boolean... checkBundles) {
+    if(pi == null || type == null) return false;
+    boolean checkBundlesFlag = checkBundles.length > 0 && checkBundles[0];
+    return InventoryIndex.build(pi).getTotal(type, checkBundlesFlag) >= amount;
+  }
+  /**
+   * This method checks a whole list of requirements at once, e.g. the ingredients of a recipe or the cost in a shop.<br>
+   * The inventory is scanned once for all requirements, and amounts are added up across all stacks
+   * @param pi The player inventory to check
+   * @param required The required total amount of every Material
+   * @param checkBundles Whether to count the items in (nested in shulker boxes) bundles as well
+   * @return The missing amount of every Material that there is not enough of, empty if the inventory contains everything
+   */
+  @NotNull static public Map<Material, Integer> getMissingItems(@Nullable PlayerInventory pi, @NotNull Map<Material, Integer> required, boolean... checkBundles) {
+    boolean checkBundlesFlag = checkBundles.length > 0 && checkBundles[0];
+    return (pi == null ? InventoryIndex.empty() : InventoryIndex.build(pi)).getMissing(required, checkBundlesFlag);
+  }
+  /**
+   * This method checks a whole list of required items at once, only {@link ItemStack#isSimilar(ItemStack) similar} items count.<br>
+   * The inventory is scanned once for all requirements, and amounts are added up across all stacks
+   * @param pi The player inventory to check
+   * @param required The required items, their amount is the required total amount
+   * @param checkBundles Whether to count the items in (nested in shulker boxes) bundles as well
+   * @return The missing amount of every required item that there is not enough of, empty if the inventory contains everything
+   */
+  @NotNull static public Map<ItemStack, Integer> getMissingItems(@Nullable PlayerInventory pi, @NotNull Collection<ItemStack> required, boolean... checkBundles) {
+    boolean checkBundlesFlag = checkBundles.length > 0 && checkBundles[0];
+    return (pi == null ? InventoryIndex.empty() : InventoryIndex.build(pi)).getMissing(required, checkBundlesFlag);
+  }
+  /**
+   * This method checks if an inventory contains all requirements, see {@link #getMissingItems(PlayerInventory, Map, boolean...)}
+   * @param pi The player inventory to check
+   * @param required The required total amount of every Material
+   * @param checkBundles Whether to count the items in (nested in shulker boxes) bundles as well
+   * @return True if nothing is missing
+   */
+  static public boolean inventoryContainsAll(@Nullable PlayerInventory pi, @NotNull Map<Material, Integer> required, boolean... checkBundles) {
+    return getMissingItems(pi, required, checkBundles).isEmpty();
   }
   /**
    * This method checks if a bundle contains a certain item stack with a certain amount
@@ -167,7 +215,7 @@ public class MechanicsUtil {
    */
   static public boolean bundleContainsItemStack(@Nullable ItemStack possibleBundle, @Nullable ItemStack is, int amount) {
     if(possibleBundle == null || is == null) return false;
-    if(possibleBundle.getType() != Material.BUNDLE) return false;
+    if(!InventoryIndex.isBundle(possibleBundle.getType())) return false;
     if(!(possibleBundle.getItemMeta() instanceof BundleMeta im)) return false;
     for(ItemStack nestedItem : im.getItems()){
       if(nestedItem != null && nestedItem.getType().equals(is.getType()) && nestedItem.getAmount() >= amount) return true;
@@ -185,13 +233,15 @@ public class MechanicsUtil {
   static public boolean shulkerContainsItemStack(@Nullable ItemStack possibleShulker, @Nullable ItemStack is, int amount, boolean... checkBundles) {
     if(possibleShulker == null || is == null) return false;
     boolean checkBundlesFlag = checkBundles.length > 0 && checkBundles[0];
+    // Reading the ItemMeta clones it, so only do that for shulker boxes
+    if(!Tag.SHULKER_BOXES.isTagged(possibleShulker.getType())) return false;
     if(!(possibleShulker.getItemMeta() instanceof BlockStateMeta im)) return false;
     if(!(im.getBlockState() instanceof ShulkerBox shulker)) return false;
     // As bundles can be put in shulkers we need to check both the item and possible a bundle using bundleContainsItemStack()
     for(ItemStack nestedItem : shulker.getInventory().getContents()){
       if(nestedItem == null) continue;
       if(nestedItem.getType().equals(is.getType()) && nestedItem.getAmount() >= amount) return true;
-      if(checkBundlesFlag && nestedItem.getType() == Material.BUNDLE && bundleContainsItemStack(nestedItem, is, amount)) return true;
+      if(checkBundlesFlag && InventoryIndex.isBundle(nestedItem.getType()) && bundleContainsItemStack(nestedItem, is, amount)) return true;
     }
     return false;
   }
@@ -223,6 +273,14 @@ public class MechanicsUtil {
       pi.setItem(i1, item2);
       pi.setItem(i2, item1);
     }
+    invalidateIndex(pi);
+  }
+  /**
+   * This method forgets the cached {@link InventoryIndex} of the owner of an inventory after it was changed here
+   * @param pi The player inventory that changed
+   */
+  private static void invalidateIndex(@NotNull PlayerInventory pi) {
+    if(pi.getHolder() instanceof Player p) InventoryIndex.invalidate(p);
   }
   /**
    * This method swaps the items in a player inventory and a shulker box
@@ -246,6 +304,7 @@ public class MechanicsUtil {
     im.setBlockState(sb);
     item.setItemMeta(im);
     pi.setItem(shulkerBoxIndex, item);
+    invalidateIndex(pi);
   }
   /**
    * This method swaps the items in two shulker boxes
@@ -275,10 +334,11 @@ public class MechanicsUtil {
     item2.setItemMeta(im2);
     pi.setItem(i1, item1);
     pi.setItem(i2, item2);
+    invalidateIndex(pi);
   }
 
   /**
-   * This method finds an {@link ItemStack} in a {@link PlayerInventory}.
+   * This method finds an {@link ItemStack} in a {@link PlayerInventory}, using its {@link InventoryIndex}.
    * @param pi The player inventory to search
    * @param i The item stack to find
    * @return A {@link Triple} containing the slot index, whether the item was found in a shulker box,
@@ -288,21 +348,11 @@ public class MechanicsUtil {
    */
   @NotNull static public Triple<Integer, Boolean, Integer> find(@Nullable PlayerInventory pi, @Nullable ItemStack i) {
     if(pi == null || i == null) return new Triple<>(null, null, null);
-    for(int j = 0; j < pi.getSize(); j++) {
-      ItemStack item = pi.getItem(j);
-      if(item == null) continue;
-      if(item.getType().equals(i.getType()) && item.getAmount() >= i.getAmount()) return new Triple<>(j, false, null);
-      if(item.getItemMeta() instanceof BlockStateMeta im) {
-        if(im.getBlockState() instanceof ShulkerBox sb) {
-          for(int k = 0; k < sb.getInventory().getSize(); k++) {
-            ItemStack nestedItem = sb.getInventory().getItem(k);
-            if(nestedItem == null) continue;
-            if(nestedItem.getType().equals(i.getType()) && nestedItem.getAmount() >= i.getAmount()) return new Triple<>(j, true, k);
-          }
-        }
-      }
-    }
-    return new Triple<>(null, null, null);
+    InventoryIndex.Position position = InventoryIndex.build(pi).find(i.getType(), i.getAmount());
+    if(position == null) return new Triple<>(null, null, null);
+    return position.inShulker()
+      ? new Triple<>(position.slot(), true, position.shulkerSlot())
+      : new Triple<>(position.slot(), false, null);
   }
   /**
    * This method swaps the items using two {@link Triple} objects. Where the first value is the slot index,
@@ -0,0 +1,248 @@
+package net.hobbnetwork.utils;
+
+import net.hobbnetwork.custom.BoundedCache;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.Style;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class is a message with placeholders like {@code %player%}, split once into its literal text and placeholders.<br>
+ * Rendering it for a player only appends the literal parts and the values of the placeholders into a reused buffer,
+ * instead of searching the message for every placeholder again.<br>
+ * Placeholders are resolved by the {@link Resolver resolvers} registered with {@link #registerResolver(String, Resolver)},
+ * or by values given to {@link #render(Player, Map)}. A placeholder that cannot be resolved is left as it was written.<br>
+ * Compiled templates are cached, so {@link #compile(String)} can be called with the same message every time.<br>
+ * {@link #renderComponent(Player)} parses the literal parts only once, the values of the placeholders are added as plain text
+ * in the style in front of them, so a value can never add its own formatting.
+ * <pre>{@code
+ * MessageTemplate.registerResolver("coins", (p) -> p == null ? "0" : String.valueOf(economy.getCoins(p)));
+ * MessageTemplate.compile("&7Hello &e%player%&7, you have &6%coins% &7coins").send(player);
+ * }</pre>
+ */
+public class MessageTemplate {
+  /**
+   * The maximum amount of compiled templates that are cached
+   */
+  public static final int CACHE_SIZE = 1024;
+  private static final BoundedCache<String, MessageTemplate> cache = new BoundedCache<>(CACHE_SIZE);
+  private static final ConcurrentHashMap<String, Resolver> resolvers = new ConcurrentHashMap<>();
+  private static final ThreadLocal<StringBuilder> buffer = ThreadLocal.withInitial(() -> new StringBuilder(256));
+  static {
+    registerResolver("player", (p) -> p == null ? "null" : p.getName());
+    registerResolver("world", (p) -> p == null ? "null" : p.getWorld().getName());
+  }
+  /**
+   * The literal parts, there is one more literal than there are placeholders
+   */
+  private final String[] literals;
+  /**
+   * The names of the placeholders, placeholder i comes after literal i
+   */
+  private final String[] placeholders;
+  private final int literalLength;
+  /**
+   * The parsed literal parts and the style of every placeholder, parsed the first time a component is rendered
+   */
+  private volatile Parsed parsed;
+
+  private MessageTemplate(String[] literals, String[] placeholders) {
+    this.literals = literals;
+    this.placeholders = placeholders;
+    int length = 0;
+    for (String literal : literals) length += literal.length();
+    this.literalLength = length;
+  }
+
+  /**
+   * This method gets the compiled template of a message, compiling it the first time
+   * @param message The message, placeholders are written as {@code %name%}
+   * @return The compiled template
+   */
+  @NotNull public static MessageTemplate compile(@NotNull String message) {
+    return cache.get(message, MessageTemplate::parse);
+  }
+
+  private static MessageTemplate parse(String message) {
+    ArrayList<String> literals = new ArrayList<>();
+    ArrayList<String> placeholders = new ArrayList<>();
+    int literalStart = 0;
+    int i = message.indexOf('%');
+    while (i >= 0) {
+      int end = message.indexOf('%', i + 1);
+      if (end < 0) break;
+      if (isName(message, i + 1, end)) {
+        literals.add(message.substring(literalStart, i));
+        placeholders.add(message.substring(i + 1, end));
+        literalStart = end + 1;
+        i = message.indexOf('%', literalStart);
+      } else {
+        // The closing % may open the next placeholder, e.g. "100% %player%"
+        i = end;
+      }
+    }
+    literals.add(message.substring(literalStart));
+    return new MessageTemplate(literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+  }
+
+  private static boolean isName(String s, int start, int end) {
+    if (start >= end) return false;
+    for (int i = start; i < end; i++) {
+      char c = s.charAt(i);
+      if (!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '.') return false;
+    }
+    return true;
+  }
+
+  /**
+   * This method registers the resolver of a placeholder, replacing the previous resolver of that name.<br>
+   * The placeholders {@code %player%} and {@code %world%} are registered by default
+   * @param name The name of the placeholder, without the % signs
+   * @param resolver The resolver of the placeholder
+   */
+  public static void registerResolver(@NotNull String name, @NotNull Resolver resolver) {
+    resolvers.put(name, resolver);
+  }
+  /**
+   * This method removes the resolver of a placeholder
+   * @param name The name of the placeholder, without the % signs
+   */
+  public static void unregisterResolver(@NotNull String name) {
+    resolvers.remove(name);
+  }
+
+  /**
+   * This method renders the message for a player
+   * @param player The player to resolve the placeholders for, can be null
+   * @return The message with its placeholders replaced
+   */
+  @NotNull public String render(@Nullable Player player) {
+    return render(player, null);
+  }
+  /**
+   * This method renders the message for a player, values that are given are used before the registered resolvers
+   * @param player The player to resolve the placeholders for, can be null
+   * @param values The values of placeholders by their name, or null
+   * @return The message with its placeholders replaced
+   */
+  @NotNull public String render(@Nullable Player player, @Nullable Map<String, ?> values) {
+    if (placeholders.length == 0) return literals[0];
+    StringBuilder sb = buffer.get();
+    sb.setLength(0);
+    sb.ensureCapacity(literalLength + placeholders.length * 16);
+    for (int i = 0; i < placeholders.length; i++) {
+      sb.append(literals[i]);
+      appendValue(sb, placeholders[i], player, values);
+    }
+    sb.append(literals[placeholders.length]);
+    String result = sb.toString();
+    if (sb.capacity() > 8192) buffer.remove();
+    return result;
+  }
+
+  private static void appendValue(StringBuilder sb, String name, @Nullable Player player, @Nullable Map<String, ?> values) {
+    String value = resolveValue(name, player, values);
+    if (value == null) sb.append('%').append(name).append('%');
+    else sb.append(value);
+  }
+
+  @Nullable private static String resolveValue(String name, @Nullable Player player, @Nullable Map<String, ?> values) {
+    if (values != null) {
+      Object value = values.get(name);
+      if (value != null) return String.valueOf(value);
+    }
+    Resolver resolver = resolvers.get(name);
+    return resolver == null ? null : resolver.resolve(player);
+  }
+
+  /**
+   * This method renders the message for a player as a component. The literal parts are parsed once,
+   * the values of the placeholders are added as plain text so legacy codes in them are not parsed
+   * @param player The player to resolve the placeholders for, can be null
+   * @return The parsed message
+   */
+  @NotNull public Component renderComponent(@Nullable Player player) {
+    return renderComponent(player, null);
+  }
+  /**
+   * This method renders the message for a player as a component, values that are given are used before the registered resolvers
+   * @param player The player to resolve the placeholders for, can be null
+   * @param values The values of placeholders by their name, or null
+   * @return The parsed message
+   */
+  @NotNull public Component renderComponent(@Nullable Player player, @Nullable Map<String, ?> values) {
+    Parsed parsed = getParsed();
+    if (placeholders.length == 0) return parsed.literals[0];
+    TextComponent.Builder message = Component.text();
+    for (int i = 0; i < placeholders.length; i++) {
+      if (!literals[i].isEmpty()) message.append(parsed.literals[i]);
+      String value = resolveValue(placeholders[i], player, values);
+      message.append(Component.text(value == null ? "%" + placeholders[i] + "%" : value, parsed.styles[i]));
+    }
+    if (!literals[placeholders.length].isEmpty()) message.append(parsed.literals[placeholders.length]);
+    return message.build();
+  }
+
+  private Parsed getParsed() {
+    Parsed parsed = this.parsed;
+    if (parsed != null) return parsed;
+    // The template itself is cached, so its parts do not have to go through the parse cache of TextUtil
+    Component[] components = new Component[literals.length];
+    Style[] styles = new Style[placeholders.length];
+    String codes = "";
+    for (int i = 0; i < literals.length; i++) {
+      components[i] = TextUtil.parseMcStringUncached(codes + literals[i]);
+      codes = TextUtil.getActiveCodes(codes + literals[i]);
+      if (i < placeholders.length) styles[i] = TextUtil.getLastStyle(TextUtil.parseMcStringUncached(codes + "x"));
+    }
+    parsed = new Parsed(components, styles);
+    this.parsed = parsed;
+    return parsed;
+  }
+  /**
+   * This method renders the message for a player and sends it to them
+   * @param player The player to send the message to, does nothing if the player is null
+   */
+  public void send(@Nullable Player player) {
+    if (player != null) player.sendMessage(renderComponent(player));
+  }
+  /**
+   * This method renders the message for every player and sends it to them.
+   * The literal parts are parsed once, only the values of the placeholders are added per player
+   * @param players The players to send the message to
+   */
+  public void send(@NotNull Iterable<? extends Player> players) {
+    for (Player player : players) player.sendMessage(renderComponent(player));
+  }
+  /**
+   * @return Whether the message contains placeholders
+   */
+  public boolean hasPlaceholders() {
+    return placeholders.length > 0;
+  }
+
+  /**
+   * The parsed parts of a template
+   * @param literals The parsed literal parts, each parsed with the legacy codes that were active before it
+   * @param styles The style of every placeholder, which is the style at the end of the literal in front of it
+   */
+  private record Parsed(Component[] literals, Style[] styles) {}
+
+  /**
+   * This interface resolves the value of a placeholder for a player
+   */
+  @FunctionalInterface
+  public interface Resolver {
+    /**
+     * @param player The player the message is rendered for, can be null
+     * @return The value of the placeholder, or null to leave the placeholder as it was written
+     */
+    @Nullable String resolve(@Nullable Player player);
+  }
+}
@@ -0,0 +1,316 @@
+package net.hobbnetwork.utils;
+
+import lombok.Getter;
+import net.hobbnetwork.custom.BoundedCache;
+import net.hobbnetwork.managers.HookManager;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+import java.util.logging.Level;
+
+/**
+ * This class is a chest GUI that shows a long list of items one page at a time.<br>
+ * The items come from a lazy source, only the items of the visible page are created. Rendered pages are cached
+ * and the next page is rendered asynchronously while the player looks at the current one,
+ * so opening a list of 10.000 items costs the same as opening one page.<br>
+ * The last row holds the previous page, page number and next page buttons.<br>
+ * <b>NOTE:</b> the source is called from the main thread and from async threads, so it should be thread-safe
+ */
+public class PaginatedGUI extends GUIUtils {
+  /**
+   * The default amount of rendered pages that are cached
+   */
+  public static final int DEFAULT_CACHED_PAGES = 8;
+  private static final ItemTemplate PREVIOUS = ItemUtil.template(Material.ARROW).name("&ePrevious page").build();
+  private static final ItemTemplate NEXT = ItemUtil.template(Material.ARROW).name("&eNext page").build();
+  private static final ItemTemplate PAGE = ItemUtil.template(Material.PAPER).name("&fPage {page}{count}").build();
+  private final HookManager hookManager;
+  private final IntFunction<ItemStack> source;
+  @Nullable private final IntSupplier count;
+  private final EntryCallback entryCallback;
+  /**
+   * The amount of items per page, which is every slot except the last row
+   */
+  @Getter private final int pageSize;
+  private final int size;
+  private final BoundedCache<Integer, ItemStack[]> pages;
+  private final ConcurrentHashMap<Integer, CompletableFuture<ItemStack[]>> prefetching = new ConcurrentHashMap<>();
+  private final Executor async;
+  /**
+   * The page that is shown, starting at 0
+   */
+  @Getter private int page = -1;
+  /**
+   * Increased by {@link #refresh()}, so pages that were still being prefetched from the old items are not cached
+   */
+  private volatile int generation = 0;
+  private final Object generationLock = new Object();
+
+  /**
+   * This constructor creates a new PaginatedGUI with a known amount of items
+   * @param hookManager The HookManager object to use
+   * @param title The title of the GUI
+   * @param rows The amount of rows of the GUI, at least 2 and at most 6
+   * @param count The amount of items, it is read again on every page change so the list can grow or shrink
+   * @param source The source of the items, called with the index of the item
+   * @param entryCallback The callback of a click on an item, or null
+   */
+  public PaginatedGUI(@NotNull HookManager hookManager, @NotNull String title, int rows, @Nullable IntSupplier count,
+                      @NotNull IntFunction<ItemStack> source, @Nullable EntryCallback entryCallback) {
+    super(hookManager, InventoryType.CHEST, title, Math.max(2, Math.min(6, rows)) * 9);
+    this.hookManager = hookManager;
+    this.size = Math.max(2, Math.min(6, rows)) * 9;
+    this.pageSize = size - 9;
+    this.count = count;
+    this.source = source;
+    this.entryCallback = entryCallback;
+    this.pages = new BoundedCache<>(DEFAULT_CACHED_PAGES);
+    this.async = (task) -> {
+      if (hookManager.isHooked()) Bukkit.getScheduler().runTaskAsynchronously(hookManager.getPlugin(), task);
+      else task.run();
+    };
+  }
+
+  /**
+   * This constructor creates a new PaginatedGUI that reads its items from an iterator, only as far as the pages that are shown
+   * @param hookManager The HookManager object to use
+   * @param title The title of the GUI
+   * @param rows The amount of rows of the GUI, at least 2 and at most 6
+   * @param items The items, e.g. from a stream of a database query
+   * @param entryCallback The callback of a click on an item, or null
+   */
+  public PaginatedGUI(@NotNull HookManager hookManager, @NotNull String title, int rows,
+                      @NotNull Iterator<ItemStack> items, @Nullable EntryCallback entryCallback) {
+    this(hookManager, title, rows, null, streaming(items), entryCallback);
+  }
+
+  /**
+   * This method turns an iterator into a source, it remembers the items it has read so earlier pages can be shown again
+   * @param items The items
+   * @return The source, which returns null after the last item
+   */
+  @NotNull public static IntFunction<ItemStack> streaming(@NotNull Iterator<ItemStack> items) {
+    return new StreamingSource(items);
+  }
+
+  /**
+   * This method opens the first page of the GUI for the specified player, or the page that is already shown
+   * @param player The player to open the GUI for
+   */
+  @Override
+  public void open(Player player) {
+    if (page < 0) showPage(0);
+    super.open(player);
+  }
+
+  /**
+   * This method shows a page and then prefetches the next page. A page that was not cached is rendered now,
+   * unless it is being prefetched, then it is shown once the prefetch is done so the main thread does not wait for it
+   * @param page The page to show, starting at 0
+   */
+  public void showPage(int page) {
+    if (isDisposed() || page < 0) return;
+    ItemStack[] items = pages.get(page);
+    if (items == null) {
+      CompletableFuture<ItemStack[]> running = prefetching.get(page);
+      if (running != null) {
+        running.whenComplete((rendered, e) -> runLater(() -> showPage(page)));
+        return;
+      }
+      if (page > 0 && Boolean.FALSE.equals(knowsPage(page))) return;
+      items = renderPage(page);
+      pages.put(page, items);
+    }
+    // A source of unknown size only tells that a page does not exist once it is rendered
+    if (page > 0 && count == null && items[0] == null) return;
+    this.page = page;
+    int first = page * pageSize;
+    for (int slot = 0; slot < pageSize; slot++) {
+      int index = first + slot;
+      ClickCallback callback = items[slot] == null || entryCallback == null ? null : (e) -> entryCallback.onClick(e, index);
+      setItem(slot, items[slot], false, callback);
+    }
+    for (int slot = pageSize; slot < size; slot++) setItem(slot, null, false, null);
+    if (page > 0) {
+      setItem(pageSize, PREVIOUS.create(), false, (e) -> showPage(this.page - 1));
+    }
+    Integer pageCount = getPageCount();
+    setItem(pageSize + 4, PAGE.create("page", page + 1, "count", pageCount == null ? "" : "/" + pageCount), false, null);
+    Boolean hasNext = knowsPage(page + 1);
+    if (Boolean.FALSE.equals(hasNext)) return;
+    if (Boolean.TRUE.equals(hasNext)) setNextButton();
+    CompletableFuture<ItemStack[]> next = prefetch(page + 1);
+    if (hasNext == null) {
+      // The next button is added once the prefetch tells whether the next page has items
+      int shown = page, started = generation;
+      next.thenAccept((rendered) -> {
+        if (rendered[0] != null) runLater(() -> {
+          if (!isDisposed() && this.page == shown && generation == started) setNextButton();
+        });
+      });
+    }
+  }
+
+  private void setNextButton() {
+    setItem(size - 1, NEXT.create(), false, (e) -> showPage(this.page + 1));
+  }
+
+  /**
+   * This method runs a task on the main thread in the next tick
+   * @param task The task to run
+   */
+  private void runLater(Runnable task) {
+    if (hookManager.isHooked()) Bukkit.getScheduler().runTask(hookManager.getPlugin(), task);
+  }
+
+  /**
+   * @return The amount of pages, or null if the source has an unknown amount of items
+   */
+  @Nullable public Integer getPageCount() {
+    if (count == null) return null;
+    return Math.max(1, (count.getAsInt() + pageSize - 1) / pageSize);
+  }
+
+  /**
+   * This method checks if a page exists, without waiting for a {@link #streaming(Iterator) streaming} source that is being read
+   * @param page The page to check
+   * @return Whether the page has items, or null if that is not known yet
+   */
+  @Nullable private Boolean knowsPage(int page) {
+    int first = page * pageSize;
+    if (count != null) return first < count.getAsInt();
+    ItemStack[] cached = pages.get(page);
+    if (cached != null) return cached[0] != null;
+    if (source instanceof StreamingSource streaming) return streaming.peek(first);
+    return source.apply(first) != null;
+  }
+
+  /**
+   * This method renders a page on an async thread and caches it, unless it is already cached or being rendered
+   * @param page The page to render
+   * @return The cached page, or the future of the rendering
+   */
+  private CompletableFuture<ItemStack[]> prefetch(int page) {
+    ItemStack[] cached = pages.get(page);
+    if (cached != null) return CompletableFuture.completedFuture(cached);
+    CompletableFuture<ItemStack[]> future = new CompletableFuture<>();
+    CompletableFuture<ItemStack[]> running = prefetching.putIfAbsent(page, future);
+    if (running != null) return running;
+    int started = generation;
+    async.execute(() -> {
+      try {
+        ItemStack[] items = renderPage(page);
+        // Checked under the same lock as refresh, so a page of the old items is never cached after a refresh
+        synchronized (generationLock) {
+          if (started == generation) pages.put(page, items);
+        }
+        future.complete(items);
+      } catch (Exception e) {
+        // Nothing is cached, so the page is rendered again when it is shown
+        hookManager.log(Level.WARNING, "[PaginatedGUI] Could not prefetch page " + page, e);
+        future.completeExceptionally(e);
+      } finally {
+        prefetching.remove(page, future);
+      }
+    });
+    return future;
+  }
+
+  private ItemStack[] renderPage(int page) {
+    ItemStack[] items = new ItemStack[pageSize];
+    int first = page * pageSize;
+    int last = count == null ? Integer.MAX_VALUE : count.getAsInt();
+    for (int i = 0; i < pageSize && first + i < last; i++) {
+      ItemStack item = source.apply(first + i);
+      if (item == null && count == null) break;
+      items[i] = item;
+    }
+    return items;
+  }
+
+  /**
+   * This method forgets all rendered pages and renders the shown page again, call it when the items of the source changed
+   */
+  public void refresh() {
+    synchronized (generationLock) {
+      generation++;
+      prefetching.clear();
+      pages.invalidateAll();
+    }
+    if (page >= 0) showPage(Math.min(page, Math.max(0, getPageCount() == null ? page : getPageCount() - 1)));
+  }
+
+  /**
+   * This method disposes the GUI and forgets all rendered pages
+   */
+  @Override
+  public void dispose() {
+    super.dispose();
+    pages.invalidateAll();
+  }
+
+  /**
+   * The source of {@link #streaming(Iterator)}, it remembers the items it has read so earlier pages can be shown again
+   */
+  private static class StreamingSource implements IntFunction<ItemStack> {
+    private final Iterator<ItemStack> items;
+    private final ArrayList<ItemStack> read = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private StreamingSource(Iterator<ItemStack> items) {
+      this.items = items;
+    }
+
+    @Override
+    public ItemStack apply(int index) {
+      lock.lock();
+      try {
+        while (read.size() <= index && items.hasNext()) read.add(items.next());
+        return index < read.size() ? read.get(index) : null;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * This method checks if an item exists without reading it, it never waits for a prefetch that is reading the iterator
+     * @param index The index of the item
+     * @return Whether the item exists, or null if that is not known without reading further or waiting
+     */
+    @Nullable private Boolean peek(int index) {
+      if (!lock.tryLock()) return null;
+      try {
+        if (index < read.size()) return true;
+        return index == read.size() ? items.hasNext() : null;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * This interface is used to handle a click on an item of the list
+   */
+  @FunctionalInterface
+  public interface EntryCallback {
+    /**
+     * @param e The click event
+     * @param index The index of the item in the source
+     */
+    void onClick(InventoryClickEvent e, int index);
+  }
+}
@@ -0,0 +1,222 @@
+package net.hobbnetwork.utils;
+
+import net.hobbnetwork.managers.HookManager;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * This class is a GUI that shows changing data, e.g. a balance or a timer.<br>
+ * Every slot can get a {@link SlotRenderer} that computes its item. The renderers are run on a fixed tick schedule
+ * and only the slots whose item differs from the last rendered item are set in the inventory,
+ * so unchanged slots are neither sent to the player nor rendered by the client again.<br>
+ * The renderers can run on an async thread, in which case only the changed slots are applied on the main thread.<br>
+ * <b>NOTE:</b> the slots are rendered for a single viewer, so the GUI can only be opened by one player at a time.
+ * Create a RefreshableGUI per player to show the same data to multiple players
+ */
+public class RefreshableGUI extends GUIUtils {
+  private final HookManager hookManager;
+  private final int size;
+  private final SlotRenderer[] renderers;
+  private final ClickCallback[] rendererCallbacks;
+  /**
+   * The item every rendered slot showed after the last refresh
+   */
+  private final ItemStack[] lastRendered;
+  private final AtomicBoolean rendering = new AtomicBoolean(false);
+  private final LongAdder applied = new LongAdder();
+  private final LongAdder skipped = new LongAdder();
+  private BukkitTask task;
+  /**
+   * The player the slots are rendered for, kept here so async renders do not have to read the viewers of the inventory
+   */
+  private volatile Player viewer;
+
+  /**
+   * This constructor creates a new RefreshableGUI
+   * @param hookManager The HookManager object to use
+   * @param type The InventoryType of the GUI
+   * @param title The title of the GUI
+   * @param size The size of the GUI
+   */
+  public RefreshableGUI(@NotNull HookManager hookManager, @NotNull InventoryType type, @NotNull String title, int size) {
+    super(hookManager, type, title, size);
+    this.hookManager = hookManager;
+    this.size = size;
+    this.renderers = new SlotRenderer[size];
+    this.rendererCallbacks = new ClickCallback[size];
+    this.lastRendered = new ItemStack[size];
+  }
+
+  /**
+   * This method sets the renderer of a slot and renders it right away
+   * @param slot The slot to render
+   * @param renderer The renderer that computes the item of the slot, or null to stop rendering the slot
+   * @param callback The ClickCallback of the slot
+   */
+  public void setRenderer(int slot, @Nullable SlotRenderer renderer, @Nullable ClickCallback callback) {
+    if (slot < 0 || slot >= size) return;
+    renderers[slot] = renderer;
+    rendererCallbacks[slot] = callback;
+    ItemStack item = renderer == null ? null : renderer.render(viewer);
+    lastRendered[slot] = item;
+    setItem(slot, item, false, callback);
+  }
+
+  /**
+   * This method starts refreshing the rendered slots, calling it again replaces the previous schedule.<br>
+   * Nothing is rendered while no one is looking at the GUI
+   * @param periodTicks The amount of ticks between two refreshes
+   * @param async Whether the renderers run on an async thread, they should then not touch worlds or entities
+   */
+  public void startRefreshing(long periodTicks, boolean async) {
+    stopRefreshing();
+    if (!hookManager.isHooked()) return;
+    long period = Math.max(1, periodTicks);
+    task = async
+      ? Bukkit.getScheduler().runTaskTimerAsynchronously(hookManager.getPlugin(), this::refreshAsync, period, period)
+      : Bukkit.getScheduler().runTaskTimer(hookManager.getPlugin(), this::refresh, period, period);
+  }
+  /**
+   * This method stops refreshing the rendered slots
+   */
+  public void stopRefreshing() {
+    if (task == null) return;
+    task.cancel();
+    task = null;
+  }
+
+  /**
+   * This method renders all slots on the main thread and applies the slots that changed
+   */
+  public void refresh() {
+    if (isDisposed() || viewer == null) return;
+    apply(render(viewer));
+  }
+
+  /**
+   * This method renders all slots on the calling async thread and applies the slots that changed on the main thread.
+   * A refresh is skipped while the previous one has not been applied yet
+   */
+  private void refreshAsync() {
+    Player viewer = this.viewer;
+    if (isDisposed() || viewer == null || !rendering.compareAndSet(false, true)) return;
+    ItemStack[] rendered;
+    try {
+      rendered = render(viewer);
+    } catch (Exception e) {
+      rendering.set(false);
+      hookManager.log(Level.WARNING, "[RefreshableGUI] Could not render the slots", e);
+      return;
+    }
+    try {
+      Bukkit.getScheduler().runTask(hookManager.getPlugin(), () -> {
+        try {
+          if (!isDisposed()) apply(rendered);
+        } finally {
+          rendering.set(false);
+        }
+      });
+    } catch (Exception e) {
+      // E.g. while the plugin is disabling, without the reset the GUI would never refresh again
+      rendering.set(false);
+      hookManager.log(Level.WARNING, "[RefreshableGUI] Could not apply the rendered slots", e);
+    }
+  }
+
+  private ItemStack[] render(@Nullable Player viewer) {
+    ItemStack[] rendered = new ItemStack[size];
+    for (int slot = 0; slot < size; slot++) {
+      SlotRenderer renderer = renderers[slot];
+      if (renderer != null) rendered[slot] = renderer.render(viewer);
+    }
+    return rendered;
+  }
+
+  /**
+   * This method sets the slots whose rendered item changed, it only runs on the main thread
+   * @param rendered The rendered item per slot
+   */
+  private void apply(ItemStack[] rendered) {
+    for (int slot = 0; slot < size; slot++) {
+      if (renderers[slot] == null) continue;
+      if (Objects.equals(lastRendered[slot], rendered[slot])) {
+        skipped.increment();
+        continue;
+      }
+      lastRendered[slot] = rendered[slot];
+      setItem(slot, rendered[slot], false, rendererCallbacks[slot]);
+      applied.increment();
+    }
+  }
+
+  /**
+   * This method opens the GUI for the specified player, the slots are rendered for that player.<br>
+   * While another player is looking at the GUI, it is not opened, so no one sees the data of another player
+   * @param player The player to open the GUI for
+   */
+  @Override
+  public void open(Player player) {
+    Player current = viewer;
+    if (current != null && !current.equals(player)) {
+      hookManager.log(Level.WARNING, "[RefreshableGUI] Cannot open the GUI for " + player.getName() + ", it is rendered for "
+        + current.getName() + ". Create a RefreshableGUI per player");
+      return;
+    }
+    viewer = player;
+    super.open(player);
+  }
+
+  /**
+   * This method stops rendering until the GUI is opened again
+   */
+  @Override
+  public void onLastViewerClosed() {
+    viewer = null;
+    super.onLastViewerClosed();
+  }
+
+  /**
+   * This method stops refreshing and disposes the GUI
+   */
+  @Override
+  public void dispose() {
+    stopRefreshing();
+    viewer = null;
+    super.dispose();
+  }
+
+  /**
+   * @return The amount of slot updates that were set in the inventory because the item changed
+   */
+  public long getAppliedCount() {
+    return applied.sum();
+  }
+  /**
+   * @return The amount of slot updates that were skipped because the item did not change
+   */
+  public long getSkippedCount() {
+    return skipped.sum();
+  }
+
+  /**
+   * This interface computes the item of a slot
+   */
+  @FunctionalInterface
+  public interface SlotRenderer {
+    /**
+     * @param viewer The player looking at the GUI, or null if the GUI is not open
+     * @return The item to show in the slot
+     */
+    @Nullable ItemStack render(@Nullable Player viewer);
+  }
+}
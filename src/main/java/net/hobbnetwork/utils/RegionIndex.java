@@ -0,0 +1,293 @@
+package net.hobbnetwork.utils;
+
+import lombok.Getter;
+import net.hobbnetwork.custom.LongObjectMap;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * This class finds the cuboid regions at a block without checking every region, e.g. for claims on every PlayerMoveEvent.<br>
+ * Every world is split into chunks (16x16 columns) and every region is added to the chunks it covers,
+ * so a point query only checks the few regions of a single chunk. Regions that cover more than {@value #MAX_CHUNKS_PER_REGION}
+ * chunks are checked on every query instead, so a huge region does not fill thousands of chunks.<br>
+ * Queries use block coordinates and never create objects, except the lists returned by {@link #getAt(UUID, int, int, int)}
+ * and {@link #getOverlapping(UUID, int, int, int, int, int, int)}.<br>
+ * <b>NOTE:</b> this class is not thread-safe, use it from the main thread or guard it yourself
+ * @param <T> The type of the value of a region, e.g. the claim it belongs to
+ */
+public class RegionIndex<T> {
+  /**
+   * Regions that cover more chunks than this are not added to the chunks
+   */
+  public static final int MAX_CHUNKS_PER_REGION = 1024;
+  private final HashMap<UUID, WorldIndex<T>> worlds = new HashMap<>();
+  private int size = 0;
+
+  /**
+   * This method adds a region, the corners can be given in any order and are both part of the region
+   * @param world The UID of the world of the region
+   * @param x1 The x of the first corner
+   * @param y1 The y of the first corner
+   * @param z1 The z of the first corner
+   * @param x2 The x of the second corner
+   * @param y2 The y of the second corner
+   * @param z2 The z of the second corner
+   * @param value The value of the region
+   * @return The region, which is needed to remove it again
+   */
+  @NotNull public Region<T> add(@NotNull UUID world, int x1, int y1, int z1, int x2, int y2, int z2, @Nullable T value) {
+    Region<T> region = new Region<>(world, Math.min(x1, x2), Math.min(y1, y2), Math.min(z1, z2),
+      Math.max(x1, x2), Math.max(y1, y2), Math.max(z1, z2), value);
+    WorldIndex<T> index = worlds.computeIfAbsent(world, (w) -> new WorldIndex<>());
+    if (region.getChunkCount() > MAX_CHUNKS_PER_REGION) {
+      index.large.add(region);
+    } else {
+      for (int cx = region.minX >> 4; cx <= region.maxX >> 4; cx++) {
+        for (int cz = region.minZ >> 4; cz <= region.maxZ >> 4; cz++) {
+          index.chunks.computeIfAbsent(GeometryUtil.packChunk(cx, cz), (k) -> new ArrayList<>(2)).add(region);
+        }
+      }
+    }
+    size++;
+    return region;
+  }
+  /**
+   * This method adds a region between two locations, see {@link #add(UUID, int, int, int, int, int, int, Object)}
+   * @param corner1 The first corner
+   * @param corner2 The second corner, in the same world as the first corner
+   * @param value The value of the region
+   * @return The region, or null if the locations are not in the same world
+   */
+  @Nullable public Region<T> add(@NotNull Location corner1, @NotNull Location corner2, @Nullable T value) {
+    World world = corner1.getWorld();
+    if (world == null || !world.equals(corner2.getWorld())) return null;
+    return add(world.getUID(), corner1.getBlockX(), corner1.getBlockY(), corner1.getBlockZ(),
+      corner2.getBlockX(), corner2.getBlockY(), corner2.getBlockZ(), value);
+  }
+  /**
+   * This method removes a region
+   * @param region The region returned by {@link #add(UUID, int, int, int, int, int, int, Object)}
+   * @return True if the region was in the index
+   */
+  public boolean remove(@NotNull Region<T> region) {
+    WorldIndex<T> index = worlds.get(region.world);
+    if (index == null) return false;
+    boolean removed = false;
+    if (region.getChunkCount() > MAX_CHUNKS_PER_REGION) {
+      removed = index.large.remove(region);
+    } else {
+      for (int cx = region.minX >> 4; cx <= region.maxX >> 4; cx++) {
+        for (int cz = region.minZ >> 4; cz <= region.maxZ >> 4; cz++) {
+          long key = GeometryUtil.packChunk(cx, cz);
+          ArrayList<Region<T>> bucket = index.chunks.get(key);
+          if (bucket == null || !removeIdentity(bucket, region)) continue;
+          removed = true;
+          if (bucket.isEmpty()) index.chunks.remove(key);
+        }
+      }
+    }
+    if (removed) size--;
+    if (index.chunks.isEmpty() && index.large.isEmpty()) worlds.remove(region.world);
+    return removed;
+  }
+
+  private static <T> boolean removeIdentity(ArrayList<Region<T>> bucket, Region<T> region) {
+    for (int i = 0; i < bucket.size(); i++) {
+      if (bucket.get(i) != region) continue;
+      // The order of a bucket does not matter, so the last region fills the gap
+      bucket.set(i, bucket.get(bucket.size() - 1));
+      bucket.remove(bucket.size() - 1);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * This method gets the first region found at a block, the cheapest query when regions do not overlap
+   * @param world The UID of the world
+   * @param x The x of the block
+   * @param y The y of the block
+   * @param z The z of the block
+   * @return A region containing the block, or null if there is none
+   */
+  @Nullable public Region<T> getFirstAt(@NotNull UUID world, int x, int y, int z) {
+    WorldIndex<T> index = worlds.get(world);
+    if (index == null) return null;
+    ArrayList<Region<T>> bucket = index.chunks.get(GeometryUtil.packChunk(x >> 4, z >> 4));
+    if (bucket != null) {
+      for (int i = 0, n = bucket.size(); i < n; i++) {
+        Region<T> region = bucket.get(i);
+        if (region.contains(x, y, z)) return region;
+      }
+    }
+    for (int i = 0, n = index.large.size(); i < n; i++) {
+      Region<T> region = index.large.get(i);
+      if (region.contains(x, y, z)) return region;
+    }
+    return null;
+  }
+  /**
+   * This method gets the first region found at the block of a location
+   * @param loc The location
+   * @return A region containing the block, or null if there is none or the location has no world
+   */
+  @Nullable public Region<T> getFirstAt(@NotNull Location loc) {
+    World world = loc.getWorld();
+    return world == null ? null : getFirstAt(world.getUID(), loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
+  }
+  /**
+   * This method gives every region at a block to an action
+   * @param world The UID of the world
+   * @param x The x of the block
+   * @param y The y of the block
+   * @param z The z of the block
+   * @param action The action to give the regions to, it should not add or remove regions
+   */
+  public void forEachAt(@NotNull UUID world, int x, int y, int z, @NotNull Consumer<Region<T>> action) {
+    WorldIndex<T> index = worlds.get(world);
+    if (index == null) return;
+    ArrayList<Region<T>> bucket = index.chunks.get(GeometryUtil.packChunk(x >> 4, z >> 4));
+    if (bucket != null) {
+      for (int i = 0, n = bucket.size(); i < n; i++) {
+        Region<T> region = bucket.get(i);
+        if (region.contains(x, y, z)) action.accept(region);
+      }
+    }
+    for (int i = 0, n = index.large.size(); i < n; i++) {
+      Region<T> region = index.large.get(i);
+      if (region.contains(x, y, z)) action.accept(region);
+    }
+  }
+  /**
+   * @param world The UID of the world
+   * @param x The x of the block
+   * @param y The y of the block
+   * @param z The z of the block
+   * @return Every region containing the block
+   */
+  @NotNull public List<Region<T>> getAt(@NotNull UUID world, int x, int y, int z) {
+    ArrayList<Region<T>> result = new ArrayList<>();
+    forEachAt(world, x, y, z, result::add);
+    return result;
+  }
+  /**
+   * This method gets every region that shares at least one block with a cuboid, e.g. to deny a new claim that overlaps another
+   * @param world The UID of the world
+   * @param x1 The x of the first corner
+   * @param y1 The y of the first corner
+   * @param z1 The z of the first corner
+   * @param x2 The x of the second corner
+   * @param y2 The y of the second corner
+   * @param z2 The z of the second corner
+   * @return Every overlapping region, each only once
+   */
+  @NotNull public List<Region<T>> getOverlapping(@NotNull UUID world, int x1, int y1, int z1, int x2, int y2, int z2) {
+    WorldIndex<T> index = worlds.get(world);
+    if (index == null) return List.of();
+    int minX = Math.min(x1, x2), minY = Math.min(y1, y2), minZ = Math.min(z1, z2);
+    int maxX = Math.max(x1, x2), maxY = Math.max(y1, y2), maxZ = Math.max(z1, z2);
+    Set<Region<T>> found = Collections.newSetFromMap(new IdentityHashMap<>());
+    ArrayList<Region<T>> result = new ArrayList<>();
+    long chunks = (long) ((maxX >> 4) - (minX >> 4) + 1) * ((maxZ >> 4) - (minZ >> 4) + 1);
+    if (chunks > index.chunks.size()) {
+      // Walking every filled chunk is cheaper than walking a huge area of mostly empty chunks
+      index.chunks.forEachValue((bucket) -> collectOverlapping(bucket, minX, minY, minZ, maxX, maxY, maxZ, found, result));
+    } else {
+      for (int cx = minX >> 4; cx <= maxX >> 4; cx++) {
+        for (int cz = minZ >> 4; cz <= maxZ >> 4; cz++) {
+          ArrayList<Region<T>> bucket = index.chunks.get(GeometryUtil.packChunk(cx, cz));
+          if (bucket != null) collectOverlapping(bucket, minX, minY, minZ, maxX, maxY, maxZ, found, result);
+        }
+      }
+    }
+    collectOverlapping(index.large, minX, minY, minZ, maxX, maxY, maxZ, found, result);
+    return result;
+  }
+
+  private static <T> void collectOverlapping(ArrayList<Region<T>> regions, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                                             Set<Region<T>> found, ArrayList<Region<T>> result) {
+    for (Region<T> region : regions) {
+      if (region.overlaps(minX, minY, minZ, maxX, maxY, maxZ) && found.add(region)) result.add(region);
+    }
+  }
+
+  /**
+   * @return The amount of regions in the index
+   */
+  public int size() {
+    return size;
+  }
+  /**
+   * This method removes all regions
+   */
+  public void clear() {
+    worlds.clear();
+    size = 0;
+  }
+
+  /**
+   * This class is a cuboid region in the index, its bounds never change. To move a region, remove it and add a new one
+   * @param <T> The type of the value of the region
+   */
+  @Getter
+  public static class Region<T> {
+    private final UUID world;
+    private final int minX, minY, minZ;
+    private final int maxX, maxY, maxZ;
+    @Nullable private final T value;
+
+    private Region(UUID world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, @Nullable T value) {
+      this.world = world;
+      this.minX = minX;
+      this.minY = minY;
+      this.minZ = minZ;
+      this.maxX = maxX;
+      this.maxY = maxY;
+      this.maxZ = maxZ;
+      this.value = value;
+    }
+
+    /**
+     * @return Whether the block is part of the region, including its borders
+     */
+    public boolean contains(int x, int y, int z) {
+      return GeometryUtil.cuboidContains(minX, minY, minZ, maxX, maxY, maxZ, x, y, z);
+    }
+    /**
+     * @return Whether the region shares at least one block with the cuboid, the minimum corner has to come first
+     */
+    public boolean overlaps(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+      return GeometryUtil.cuboidsOverlap(this.minX, this.minY, this.minZ, this.maxX, this.maxY, this.maxZ, minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    private long getChunkCount() {
+      return (long) ((maxX >> 4) - (minX >> 4) + 1) * ((maxZ >> 4) - (minZ >> 4) + 1);
+    }
+
+    @Override
+    public String toString() {
+      return "Region{" +
+        "world=" + world +
+        ",min=" + minX + "," + minY + "," + minZ +
+        ",max=" + maxX + "," + maxY + "," + maxZ +
+        ",value=" + value +
+        '}';
+    }
+  }
+
+  private static class WorldIndex<T> {
+    private final LongObjectMap<ArrayList<Region<T>>> chunks = new LongObjectMap<>();
+    private final ArrayList<Region<T>> large = new ArrayList<>();
+  }
+}
@@ -0,0 +1,292 @@
+package net.hobbnetwork.utils;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This handler writes log records to "name.log" through a buffered {@link FileChannel}.<br>
+ * The file is rotated when it grows larger than {@link #getMaxFileSize()} or when the day changes,
+ * the old file is renamed to "name-yyyy-MM-dd-N.log" and compressed to a .gz file on a background thread.
+ * Only the newest {@link #getMaxArchives()} compressed files that are not older than {@link #getMaxAgeDays()} days are kept.<br>
+ * The buffer is written to the file when it is full or when {@link #flush()} is called, which {@link LogUtil} does after every batch of records.
+ */
+public class RollingFileHandler extends Handler {
+  public static final long DEFAULT_MAX_FILE_SIZE = 10L * 1024 * 1024;
+  public static final int DEFAULT_MAX_ARCHIVES = 30;
+  public static final int DEFAULT_MAX_AGE_DAYS = 14;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+  private static final String LOG_EXTENSION = ".log";
+  private static final String ARCHIVE_EXTENSION = ".log.gz";
+  @Getter private final File directory;
+  @Getter private final String name;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private final ExecutorService compressor;
+  private final ZoneId zone = ZoneId.systemDefault();
+  /**
+   * The size in bytes after which the file is rotated
+   */
+  @Getter private volatile long maxFileSize = DEFAULT_MAX_FILE_SIZE;
+  /**
+   * The maximum amount of compressed files that are kept, 0 or less keeps all of them
+   */
+  @Getter private volatile int maxArchives = DEFAULT_MAX_ARCHIVES;
+  /**
+   * The maximum age in days of the compressed files that are kept, 0 or less keeps all of them
+   */
+  @Getter private volatile int maxAgeDays = DEFAULT_MAX_AGE_DAYS;
+  private FileChannel channel;
+  private long size;
+  private LocalDate day;
+  /**
+   * The start of the next day in epoch milliseconds, so the day only has to be calculated once per day
+   */
+  private long nextDayMillis;
+  private boolean closed = false;
+
+  /**
+   * This constructor creates a new RollingFileHandler and opens the log file, a file of a previous day is rotated right away.
+   * Rotated files that were not compressed yet, e.g. because the server crashed, are compressed in the background
+   * @param directory The directory of the log files
+   * @param name The name of the log files, without extension
+   * @throws IOException If the directory or the file could not be created
+   */
+  public RollingFileHandler(@NotNull File directory, @NotNull String name) throws IOException {
+    this.directory = directory;
+    this.name = name;
+    if (!directory.exists() && !directory.mkdirs()) {
+      throw new IOException("Failed to create log directory: " + directory.getPath());
+    }
+    String owner = directory.getAbsoluteFile().getParentFile() != null ? directory.getAbsoluteFile().getParentFile().getName() : name;
+    this.compressor = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("hobb-log-gzip-" + owner).daemon(true).factory());
+    setFormatter(new SimpleFormatter());
+    List<Path> uncompressed = findUncompressed();
+    compressor.execute(() -> {
+      uncompressed.forEach(this::compress);
+      applyRetention();
+    });
+    File active = getActiveFile();
+    if(active.exists() && active.length() > 0) {
+      LocalDate modified = LocalDate.ofInstant(Files.getLastModifiedTime(active.toPath()).toInstant(), zone);
+      if(!modified.equals(LocalDate.now(zone))) {
+        this.day = modified;
+        rotateFile();
+      }
+    }
+    open(System.currentTimeMillis());
+  }
+
+  private File getActiveFile() {
+    return new File(directory, name + LOG_EXTENSION);
+  }
+
+  private void open(long millis) throws IOException {
+    this.day = LocalDate.ofInstant(Instant.ofEpochMilli(millis), zone);
+    this.nextDayMillis = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+    this.channel = FileChannel.open(getActiveFile().toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    this.size = channel.size();
+  }
+
+  @Override
+  public synchronized void publish(LogRecord record) {
+    if(closed || !isLoggable(record)) return;
+    String formatted;
+    try {
+      formatted = getFormatter().format(record);
+    } catch(Exception e) {
+      reportError(null, e, ErrorManager.FORMAT_FAILURE);
+      return;
+    }
+    byte[] bytes = formatted.getBytes(StandardCharsets.UTF_8);
+    try {
+      if(record.getMillis() >= nextDayMillis || (size > 0 && size + bytes.length > maxFileSize)) rotate(record.getMillis());
+      if(bytes.length > buffer.remaining()) writeBuffer();
+      if(bytes.length > buffer.capacity()) {
+        ByteBuffer large = ByteBuffer.wrap(bytes);
+        while(large.hasRemaining()) channel.write(large);
+      } else {
+        buffer.put(bytes);
+      }
+      size += bytes.length;
+    } catch(IOException e) {
+      reportError(null, e, ErrorManager.WRITE_FAILURE);
+    }
+  }
+
+  private void writeBuffer() throws IOException {
+    buffer.flip();
+    while(buffer.hasRemaining()) channel.write(buffer);
+    buffer.clear();
+  }
+
+  /**
+   * This method writes the buffered records to the file, without waiting for the disk to sync
+   */
+  @Override
+  public synchronized void flush() {
+    if(closed || buffer.position() == 0) return;
+    try {
+      writeBuffer();
+    } catch(IOException e) {
+      reportError(null, e, ErrorManager.FLUSH_FAILURE);
+    }
+  }
+
+  /**
+   * This method closes the current file, moves it out of the way and opens a new one
+   * @param millis The time of the record that caused the rotation
+   */
+  private void rotate(long millis) throws IOException {
+    writeBuffer();
+    channel.close();
+    try {
+      rotateFile();
+    } finally {
+      // If the file could not be moved, the records are appended to it instead of getting lost
+      open(millis);
+    }
+  }
+
+  /**
+   * This method renames the active file to the next free name of its day and compresses it in the background
+   */
+  private void rotateFile() throws IOException {
+    File active = getActiveFile();
+    File rotated;
+    int index = 0;
+    do {
+      String base = name + "-" + day + "-" + (++index);
+      rotated = new File(directory, base + LOG_EXTENSION);
+      if(new File(directory, base + ARCHIVE_EXTENSION).exists()) rotated = null;
+    } while(rotated == null || rotated.exists());
+    Files.move(active.toPath(), rotated.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    Path toCompress = rotated.toPath();
+    compressor.execute(() -> {
+      compress(toCompress);
+      applyRetention();
+    });
+  }
+
+  /**
+   * @return The rotated files of this handler that were not compressed yet
+   */
+  private List<Path> findUncompressed() throws IOException {
+    Pattern rotated = Pattern.compile(Pattern.quote(name) + "-\\d{4}-\\d{2}-\\d{2}-\\d+" + Pattern.quote(LOG_EXTENSION));
+    try(Stream<Path> files = Files.list(directory.toPath())) {
+      return files.filter((p) -> rotated.matcher(p.getFileName().toString()).matches()).toList();
+    }
+  }
+
+  private void compress(Path file) {
+    Path archive = file.resolveSibling(file.getFileName().toString().replace(LOG_EXTENSION, ARCHIVE_EXTENSION));
+    try(InputStream in = Files.newInputStream(file);
+        OutputStream out = new GZIPOutputStream(Files.newOutputStream(archive), BUFFER_SIZE)) {
+      in.transferTo(out);
+    } catch(IOException e) {
+      reportError("Could not compress " + file, e, ErrorManager.GENERIC_FAILURE);
+      return;
+    }
+    try {
+      Files.delete(file);
+    } catch(IOException e) {
+      reportError("Could not delete " + file, e, ErrorManager.GENERIC_FAILURE);
+    }
+  }
+
+  /**
+   * This method deletes the compressed files that are too old or exceed the maximum amount, the oldest go first
+   */
+  private void applyRetention() {
+    List<Path> archives = new ArrayList<>();
+    try(Stream<Path> files = Files.list(directory.toPath())) {
+      files.filter((p) -> {
+        String fileName = p.getFileName().toString();
+        return fileName.startsWith(name + "-") && fileName.endsWith(ARCHIVE_EXTENSION);
+      }).forEach(archives::add);
+    } catch(IOException e) {
+      reportError("Could not list " + directory, e, ErrorManager.GENERIC_FAILURE);
+      return;
+    }
+    archives.sort(Comparator.comparingLong((Path p) -> p.toFile().lastModified()).reversed());
+    long oldest = maxAgeDays > 0 ? System.currentTimeMillis() - TimeUnit.DAYS.toMillis(maxAgeDays) : Long.MIN_VALUE;
+    for(int i = 0; i < archives.size(); i++) {
+      Path archive = archives.get(i);
+      if((maxArchives <= 0 || i < maxArchives) && archive.toFile().lastModified() >= oldest) continue;
+      try {
+        Files.deleteIfExists(archive);
+      } catch(IOException e) {
+        reportError("Could not delete " + archive, e, ErrorManager.GENERIC_FAILURE);
+      }
+    }
+  }
+
+  /**
+   * @param maxFileSize The size in bytes after which the file is rotated
+   */
+  public void setMaxFileSize(long maxFileSize) {
+    this.maxFileSize = Math.max(1024, maxFileSize);
+  }
+  /**
+   * @param maxArchives The maximum amount of compressed files that are kept, 0 or less keeps all of them
+   */
+  public void setMaxArchives(int maxArchives) {
+    this.maxArchives = maxArchives;
+  }
+  /**
+   * @param maxAgeDays The maximum age in days of the compressed files that are kept, 0 or less keeps all of them
+   */
+  public void setMaxAgeDays(int maxAgeDays) {
+    this.maxAgeDays = maxAgeDays;
+  }
+
+  /**
+   * This method writes the buffered records, closes the file and waits for the running compressions to finish
+   */
+  @Override
+  public void close() {
+    synchronized(this) {
+      if(closed) return;
+      flush();
+      closed = true;
+      try {
+        channel.close();
+      } catch(IOException e) {
+        reportError(null, e, ErrorManager.CLOSE_FAILURE);
+      }
+    }
+    compressor.shutdown();
+    try {
+      compressor.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
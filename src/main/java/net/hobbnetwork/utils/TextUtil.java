@@ -1,13 +1,16 @@
 package net.hobbnetwork.utils;
 
+import net.hobbnetwork.custom.BoundedCache;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.Style;
 import net.kyori.adventure.text.format.TextColor;
 import net.kyori.adventure.text.format.TextDecoration;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 import net.kyori.adventure.title.Title;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
@@ -15,31 +18,204 @@ import org.jetbrains.annotations.Nullable;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A class for handling text and messages
  */
 public class TextUtil {
+  /**
+   * The maximum amount of parsed strings that are cached
+   */
+  public static final int PARSE_CACHE_SIZE = 4096;
+  /**
+   * Longer strings are parsed every time, they are rarely repeated and would take a lot of room in the cache
+   */
+  private static final int MAX_CACHED_LENGTH = 256;
+  private static final BoundedCache<String, Component> parseCache = new BoundedCache<>(PARSE_CACHE_SIZE);
+  /**
+   * The 16 compass directions, starting at South (yaw 0) and turning clockwise
+   */
+  private static final TextComponent[] DIRECTIONS_16 = {
+    getColoredString("#6ebe44","South"),              // zuid
+    getColoredString("#6fc178","South-Southwest"),    // zuid zuidwest
+    getColoredString("#270898","Southwest"),          // zuidwest
+    getColoredString("#53c4c8","West-Southwest"),     // west zuidwest
+    getColoredString("#044651","West"),               // west
+    getColoredString("#283087","West-Northwest"),     // west noordwest
+    getColoredString("#684b9e","Northwest"),          // noordwest
+    getColoredString("#803092","North-Northwest"),    // noord noordwest
+    getColoredString("#92241d","North"),              // noord
+    getColoredString("#e74124","North-Northeast"),    // noord noordoost
+    getColoredString("#db5c26","Northeast"),          // noordoost
+    getColoredString("#b46627","East-Northeast"),     // oost noordoost
+    getColoredString("#cc952a","East"),               // oost
+    getColoredString("#deb625","East-Southeast"),     // oost zuidoost
+    getColoredString("#868433","Southeast"),          // zuidoost
+    getColoredString("#919e39","South-Southeast")     // zuid zuidoost
+  };
+  /**
+   * The 8 compass directions, starting at South (yaw 0) and turning clockwise
+   */
+  private static final TextComponent[] DIRECTIONS_8 = {
+    DIRECTIONS_16[0], DIRECTIONS_16[2], DIRECTIONS_16[4], DIRECTIONS_16[6],
+    DIRECTIONS_16[8], DIRECTIONS_16[10], DIRECTIONS_16[12], DIRECTIONS_16[14]
+  };
+  /**
+   * Every minute of the day, the night colored minutes first and then the day colored minutes, created when first used
+   */
+  private static final TextComponent[] TIMES = new TextComponent[2 * 24 * 60];
+  private static final Map<String, String> BIOME_COLORS = Map.ofEntries(
+    // End biomes
+    Map.entry("END_BARRENS", "#5d4a4a"),
+    Map.entry("END_HIGHLANDS", "#755e5e"),
+    Map.entry("END_MIDLANDS", "#736262"),
+    Map.entry("SMALL_END_ISLANDS", "#937878"),
+    Map.entry("THE_END", "#636363"),
+    Map.entry("THE_VOID", "#000000"),
+    // Nether biomes
+    Map.entry("BASALT_DELTAS", "#2e3836"),
+    Map.entry("CRIMSON_FOREST", "#7c2929"),
+    Map.entry("NETHER_WASTES", "#6e6e6e"),
+    Map.entry("SOUL_SAND_VALLEY", "#8c7d8c"),
+    Map.entry("WARPED_FOREST", "#44407e"),
+    // Overworld biomes
+    Map.entry("BADLANDS", "#d94515"),
+    Map.entry("BADLANDS_PLATEAU", "#b09765"),
+    Map.entry("BAMBOO_JUNGLE", "#537b09"),
+    Map.entry("BAMBOO_JUNGLE_HILLS", "#2e4209"),
+    Map.entry("BEACH", "#f2e7c4"),
+    Map.entry("BIRCH_FOREST", "#4e8234"),
+    Map.entry("BIRCH_FOREST_HILLS", "#3b6e2e"),
+    Map.entry("COLD_OCEAN", "#44427e"),
+    Map.entry("DARK_FOREST", "#005b00"),
+    Map.entry("DEEP_COLD_OCEAN", "#243b55"),
+    Map.entry("DEEP_FROZEN_OCEAN", "#39ace7"),
+    Map.entry("DEEP_LUKEWARM_OCEAN", "#45adf2"),
+    Map.entry("DEEP_OCEAN", "#00008b"),
+    Map.entry("DESERT", "#fa9418"),
+    Map.entry("DESERT_HILLS", "#c2b280"),
+    Map.entry("DESERT_LAKES", "#e0cda7"),
+    Map.entry("FOREST", "#056621"),
+    Map.entry("FLOWER_FOREST", "#2d8e49"),
+    Map.entry("FROZEN_RIVER", "#a4ebf3"),
+    Map.entry("FROZEN_OCEAN", "#909cea"),
+    Map.entry("GIANT_SPRUCE_TAIGA", "#598556"),
+    Map.entry("GIANT_SPRUCE_TAIGA_HILLS", "#478446"),
+    Map.entry("GIANT_TREE_TAIGA", "#6b8e23"),
+    Map.entry("GIANT_TREE_TAIGA_HILLS", "#556b2f"),
+    Map.entry("GRAVELLY_MOUNTAINS", "#787878"),
+    Map.entry("ICE_SPIKES", "#afffff"),
+    Map.entry("JUNGLE", "#007d21"), // Diep groen
+    Map.entry("JUNGLE_EDGE", "#88a825"), // Licht groen
+    Map.entry("JUNGLE_HILLS", "#558527"), // Donkerder groen
+    Map.entry("LUKEWARM_OCEAN", "#00d8ff"), // Helder blauw
+    Map.entry("MOUNTAINS", "#7f7676"), // Donker grijs
+    Map.entry("MUSHROOM_FIELDS", "#ff00ff"), // Fel roze
+    Map.entry("MUSHROOM_FIELD_SHORE", "#a000ff"), // Paars
+    Map.entry("OCEAN", "#0000cd"), // Middelblauw
+    Map.entry("PLAINS", "#f7e9a3"), // Lichtgeel
+    Map.entry("RIVER", "#0000ff"), // Blauw
+    Map.entry("SAVANNA", "#bdb25f"), // Geelbruin
+    Map.entry("SAVANNA_PLATEAU", "#a79d64"), // Licht geelbruin
+    Map.entry("SHATTERED_SAVANNA", "#e5da87"), // Fel geelbruin
+    Map.entry("SHATTERED_SAVANNA_PLATEAU", "#c9c374"), // Dof geelbruin
+    Map.entry("SNOWY_BEACH", "#fffafa"), // Sneeuwwit
+    Map.entry("SNOWY_MOUNTAINS", "#f0f8ff"), // Zeer licht blauw
+    Map.entry("SNOWY_TAIGA", "#bac4b3"), // Lichtgrijs groen
+    Map.entry("SNOWY_TAIGA_HILLS", "#9db1a0"), // Middengrijs groen
+    Map.entry("SNOWY_TAIGA_MOUNTAINS", "#8ca58f"), // Donkergrijs groen
+    Map.entry("SNOWY_TUNDRA", "#fffafa"), // Sneeuwwit
+    Map.entry("STONE_SHORE", "#a2a2a2"), // Steengrijs
+    Map.entry("SUNFLOWER_PLAINS", "#ffff00"), // Zonnebloemgeel
+    Map.entry("SWAMP", "#697d70"), // Modderig groen
+    Map.entry("SWAMP_HILLS", "#537b52"), // Donker modderig groen
+    Map.entry("TAIGA", "#516c51"), // Donkergroen
+    Map.entry("TAIGA_HILLS", "#4b6154"), // Zeer donkergroen
+    Map.entry("TAIGA_MOUNTAINS", "#3b4f41"), // Bijna zwartgroen
+    Map.entry("TALL_BIRCH_FOREST", "#5d732f"), // Lichter groen
+    Map.entry("TALL_BIRCH_HILLS", "#4c6226"), // Donkerder lichtgroen
+    Map.entry("WARM_OCEAN", "#ff8c00") // Warm oranje
+  );
+  private static final ConcurrentHashMap<String, TextComponent> BIOMES = new ConcurrentHashMap<>();
+  static {
+    BIOME_COLORS.forEach((biome, hex) -> BIOMES.put(biome, createColorizedBiome(biome, hex)));
+  }
+  private static final Component HUD_SEPARATOR = getColoredString("#aaaaaa", " | ");
+
   /**
    * Parses a Minecraft string into a Component
-   * Basically just a wrapper for {@link LegacyComponentSerializer#legacyAmpersand()}
+   * Basically just a wrapper for {@link LegacyComponentSerializer#legacyAmpersand()}<br>
+   * Components are immutable, so the result of a string is cached and the same Component is returned the next time
    * @param s String to parse
    * @return Component from the string or an empty Component if the string is null
    */
   static public Component parseMcString(@Nullable String s) {
+    if(s == null) return Component.empty();
+    if(s.length() > MAX_CACHED_LENGTH) return parseMcStringUncached(s);
+    return parseCache.get(s, TextUtil::parseMcStringUncached);
+  }
+  /**
+   * Parses a Minecraft string into a Component without using the cache of {@link #parseMcString(String)}
+   * @param s String to parse
+   * @return Component from the string or an empty Component if the string is null
+   */
+  static public Component parseMcStringUncached(@Nullable String s) {
     return s == null ? Component.empty() : LegacyComponentSerializer.legacyAmpersand().deserialize(s);
   }
+  /**
+   * This method gets the legacy codes that are active at the end of a string, so the next part can be parsed on its own
+   * @param s The string with legacy codes
+   * @return The last color code followed by the decoration codes after it
+   */
+  static String getActiveCodes(String s) {
+    String color = "";
+    StringBuilder decorations = new StringBuilder();
+    for(int i = s.indexOf('&'); i >= 0 && i + 1 < s.length(); i = s.indexOf('&', i + 1)) {
+      char code = Character.toLowerCase(s.charAt(i + 1));
+      if((code >= '0' && code <= '9') || (code >= 'a' && code <= 'f') || code == 'r') {
+        color = code == 'r' ? "&r" : "&" + code;
+        decorations.setLength(0);
+      } else if(code >= 'k' && code <= 'o') {
+        decorations.append('&').append(code);
+      }
+    }
+    return color + decorations;
+  }
+  /**
+   * @return The style of the last text in a component, including the styles it inherits
+   */
+  static Style getLastStyle(Component c) {
+    Style style = c.style();
+    while(!c.children().isEmpty()) {
+      c = c.children().getLast();
+      style = style.merge(c.style());
+    }
+    return style;
+  }
+  /**
+   * Gets the cache of {@link #parseMcString(String)}, e.g. to read its hit rate
+   * @return The cache of parsed strings
+   */
+  static public BoundedCache<String, Component> getParseCache() {
+    return parseCache;
+  }
   /**
    * Replaces %player% with the player's name
    * Replaces %player% with "null" if the player is null
+   * Other placeholders are left as they are, use {@link MessageTemplate#compile(String)} to replace those
    * @param s String to replace in
    * @param p Player to get name from
    * @return String with %player% replaced with player's name
    */
   static public String replacePlayerPlaceholder(@NotNull String s, @Nullable Player p) {
-    return s.replaceAll("%player%", p == null ? "null" : p.getName());
+    return s.replace("%player%", p == null ? "null" : p.getName());
   }
 
 
@@ -200,29 +376,18 @@ public class TextUtil {
    */
   static public TextComponent getColoredPlayerDirection(@Nullable Player p) {
     if(p == null) return Component.empty();
-    TextComponent dir;
-    float y = p.getLocation().getYaw();
-    if( y < 0 ){y += 360;}
-    y %= 360;
-    int i = (int)((y+8) / 22.5);
-    if(i == 0)      {dir = getColoredString("#6ebe44","South");}              // zuid
-    else if(i ==  1){dir = getColoredString("#6fc178","South-Southwest");}    // zuid zuidwest
-    else if(i ==  2){dir = getColoredString("#270898","Southwest");}          // zuidwest
-    else if(i ==  3){dir = getColoredString("#53c4c8","West-Southwest");}     // west zuidwest
-    else if(i ==  4){dir = getColoredString("#044651","West");}               // west
-    else if(i ==  5){dir = getColoredString("#283087","West-Northwest");}     // west noordwest
-    else if(i ==  6){dir = getColoredString("#684b9e","Northwest");}          // noordwest
-    else if(i ==  7){dir = getColoredString("#803092","North-Northwest");}    // noord noordwest
-    else if(i ==  8){dir = getColoredString("#92241d","North");}              // noord
-    else if(i ==  9){dir = getColoredString("#e74124","North-Northeast");}    // noord noordoost
-    else if(i == 10){dir = getColoredString("#db5c26","Northeast");}          // noordoost
-    else if(i == 11){dir = getColoredString("#b46627","East-Northeast");}     // oost noordoost
-    else if(i == 12){dir = getColoredString("#cc952a","East");}               // oost
-    else if(i == 13){dir = getColoredString("#deb625","East-Southeast");}     // oost zuidoost
-    else if(i == 14){dir = getColoredString("#868433","Southeast");}          // zuidoost
-    else if(i == 15){dir = getColoredString("#919e39","South-Southeast");}    // zuid zuidoost*/
-    else            {dir = getColoredString("#6ebe44","South");}              // zuid
-    return dir;
+    return getColoredDirection(p.getLocation().getYaw());
+  }
+  /**
+   * Gets the direction of a yaw as a {@link TextComponent} with all 16 directions, the components are shared and never change
+   * @param yaw Yaw to get direction of
+   * @return {@link TextComponent} with the direction
+   */
+  static public TextComponent getColoredDirection(float yaw) {
+    float y = yaw % 360;
+    if(y < 0) y += 360;
+    // Sector 16 wraps around to South
+    return DIRECTIONS_16[(int) ((y + 8) / 22.5) & 15];
   }
   /**
    * Gets the direction a player is facing as a {@link TextComponent}, limited to the cardinal directions
@@ -231,35 +396,49 @@ public class TextUtil {
    */
   static public TextComponent getLimitedColoredPlayerDirection(@Nullable Player p) {
     if(p == null) return Component.empty();
-    TextComponent dir;
-    float y = p.getLocation().getYaw();
-    if( y < 0 ){y += 360;}
-    y %= 360;
-    int i = (int)((y+8) / 45);
-    if(i == 0)     {dir = getColoredString("#6ebe44","South");}              // zuid
-    else if(i == 1){dir = getColoredString("#270898","Southwest");}          // zuidwest
-    else if(i == 2){dir = getColoredString("#044651","West");}               // west
-    else if(i == 3){dir = getColoredString("#684b9e","Northwest");}          // noordwest
-    else if(i == 4){dir = getColoredString("#92241d","North");}              // noord
-    else if(i == 5){dir = getColoredString("#db5c26","Northeast");}          // noordoost
-    else if(i == 6){dir = getColoredString("#cc952a","East");}               // oost
-    else if(i == 7){dir = getColoredString("#868433","Southeast");}          // zuidoost
-    else           {dir = getColoredString("#6ebe44","South");}              // zuid
-    return dir;
+    return getLimitedColoredDirection(p.getLocation().getYaw());
+  }
+  /**
+   * Gets the direction of a yaw as a {@link TextComponent}, limited to the cardinal directions, the components are shared and never change
+   * @param yaw Yaw to get direction of
+   * @return {@link TextComponent} with the direction
+   */
+  static public TextComponent getLimitedColoredDirection(float yaw) {
+    float y = yaw % 360;
+    if(y < 0) y += 360;
+    // Sector 8 wraps around to South
+    return DIRECTIONS_8[(int) ((y + 8) / 45) & 7];
   }
   /**
    * Gets the time of day as a {@link TextComponent}
    * @param p Player to get time of
    * @return {@link TextComponent} with the time of day or an empty Component if the player is null formated as "HH:MM"
    */
-  static public TextComponent getTime(Player p) {
-    double tick = (double) p.getWorld().getTime();
+  static public TextComponent getTime(@Nullable Player p) {
+    if(p == null) return Component.empty();
+    return getTime(p.getWorld().getTime(), p.getWorld().isDayTime());
+  }
+  /**
+   * Gets the time of day as a {@link TextComponent}, the components are created once per minute of the day and then shared
+   * @param tick The time of the world in ticks, see {@link org.bukkit.World#getTime()}
+   * @param day Whether it is day in the world, day and night have a different color
+   * @return {@link TextComponent} with the time of day formated as "HH:MM"
+   */
+  static public TextComponent getTime(long tick, boolean day) {
+    // Normalize first, the full time of a world can be negative or past one day
+    tick = Math.floorMod(tick, 24000L);
     int hours = (int) ((tick + 6000) / 1000) % 24;
     int minutes = (int) ((tick % 1000) * 0.06);
-    String part1 = (hours < 10) ? "0" : "";
-    String part2 = (minutes < 10) ? ":0" : ":";
-    p.getWorld().isDayTime();
-    return getColoredString(p.getWorld().isDayTime() ? "#f2f251" : "#4a4a4a", part1 + hours + part2 + minutes);
+    int index = (day ? 1440 : 0) + hours * 60 + minutes;
+    TextComponent time = TIMES[index];
+    if(time == null) {
+      // Components are immutable, so two threads creating the same minute at once is harmless
+      String part1 = (hours < 10) ? "0" : "";
+      String part2 = (minutes < 10) ? ":0" : ":";
+      time = getColoredString(day ? "#f2f251" : "#4a4a4a", part1 + hours + part2 + minutes);
+      TIMES[index] = time;
+    }
+    return time;
   }
   /**
    * Gets the biome a player is in as a {@link TextComponent}
@@ -268,83 +447,51 @@ public class TextUtil {
    */
   static public TextComponent getColorizedBiome(@Nullable String biomeName) {
     if(biomeName == null) return Component.empty();
-    TextComponent result;
-    String name = biomeName.replace('_', ' ');
-    // END BIOMES:
-    result = switch(biomeName) {
-      // End biomes
-      case "END_BARRENS" -> getColoredString("#5d4a4a", name);
-      case "END_HIGHLANDS" -> getColoredString("#755e5e", name);
-      case "END_MIDLANDS" -> getColoredString("#736262", name);
-      case "SMALL_END_ISLANDS" -> getColoredString("#937878", name);
-      case "THE_END" -> getColoredString("#636363", name);
-      case "THE_VOID" -> getColoredString("#000000", name);
-      // Nether biomes
-      case "BASALT_DELTAS" -> getColoredString("#2e3836", name);
-      case "CRIMSON_FOREST" -> getColoredString("#7c2929", name);
-      case "NETHER_WASTES" -> getColoredString("#6e6e6e", name);
-      case "SOUL_SAND_VALLEY" -> getColoredString("#8c7d8c", name);
-      case "WARPED_FOREST" -> getColoredString("#44407e", name);
-      // Overworld biomes
-      case "BADLANDS" -> getColoredString("#d94515", name);
-      case "BADLANDS_PLATEAU" -> getColoredString("#b09765", name);
-      case "BAMBOO_JUNGLE" -> getColoredString("#537b09", name);
-      case "BAMBOO_JUNGLE_HILLS" -> getColoredString("#2e4209", name);
-      case "BEACH" -> getColoredString("#f2e7c4", name);
-      case "BIRCH_FOREST" -> getColoredString("#4e8234", name);
-      case "BIRCH_FOREST_HILLS" -> getColoredString("#3b6e2e", name);
-      case "COLD_OCEAN" -> getColoredString("#44427e", name);
-      case "DARK_FOREST" -> getColoredString("#005b00", name);
-      case "DEEP_COLD_OCEAN" -> getColoredString("#243b55", name);
-      case "DEEP_FROZEN_OCEAN" -> getColoredString("#39ace7", name);
-      case "DEEP_LUKEWARM_OCEAN" -> getColoredString("#45adf2", name);
-      case "DEEP_OCEAN" -> getColoredString("#00008b", name);
-      case "DESERT" -> getColoredString("#fa9418", name);
-      case "DESERT_HILLS" -> getColoredString("#c2b280", name);
-      case "DESERT_LAKES" -> getColoredString("#e0cda7", name);
-      case "FOREST" -> getColoredString("#056621", name);
-      case "FLOWER_FOREST" -> getColoredString("#2d8e49", name);
-      case "FROZEN_RIVER" -> getColoredString("#a4ebf3", name);
-      case "FROZEN_OCEAN" -> getColoredString("#909cea", name);
-      case "GIANT_SPRUCE_TAIGA" -> getColoredString("#598556", name);
-      case "GIANT_SPRUCE_TAIGA_HILLS" -> getColoredString("#478446", name);
-      case "GIANT_TREE_TAIGA" -> getColoredString("#6b8e23", name);
-      case "GIANT_TREE_TAIGA_HILLS" -> getColoredString("#556b2f", name);
-      case "GRAVELLY_MOUNTAINS" -> getColoredString("#787878", name);
-      case "ICE_SPIKES" -> getColoredString("#afffff", name);
-      case "JUNGLE" -> getColoredString("#007d21", name); // Diep groen
-      case "JUNGLE_EDGE" -> getColoredString("#88a825", name); // Licht groen
-      case "JUNGLE_HILLS" -> getColoredString("#558527", name); // Donkerder groen
-      case "LUKEWARM_OCEAN" -> getColoredString("#00d8ff", name); // Helder blauw
-      case "MOUNTAINS" -> getColoredString("#7f7676", name); // Donker grijs
-      case "MUSHROOM_FIELDS" -> getColoredString("#ff00ff", name); // Fel roze
-      case "MUSHROOM_FIELD_SHORE" -> getColoredString("#a000ff", name); // Paars
-      case "OCEAN" -> getColoredString("#0000cd", name); // Middelblauw
-      case "PLAINS" -> getColoredString("#f7e9a3", name); // Lichtgeel
-      case "RIVER" -> getColoredString("#0000ff", name); // Blauw
-      case "SAVANNA" -> getColoredString("#bdb25f", name); // Geelbruin
-      case "SAVANNA_PLATEAU" -> getColoredString("#a79d64", name); // Licht geelbruin
-      case "SHATTERED_SAVANNA" -> getColoredString("#e5da87", name); // Fel geelbruin
-      case "SHATTERED_SAVANNA_PLATEAU" -> getColoredString("#c9c374", name); // Dof geelbruin
-      case "SNOWY_BEACH" -> getColoredString("#fffafa", name); // Sneeuwwit
-      case "SNOWY_MOUNTAINS" -> getColoredString("#f0f8ff", name); // Zeer licht blauw
-      case "SNOWY_TAIGA" -> getColoredString("#bac4b3", name); // Lichtgrijs groen
-      case "SNOWY_TAIGA_HILLS" -> getColoredString("#9db1a0", name); // Middengrijs groen
-      case "SNOWY_TAIGA_MOUNTAINS" -> getColoredString("#8ca58f", name); // Donkergrijs groen
-      case "SNOWY_TUNDRA" -> getColoredString("#fffafa", name); // Sneeuwwit
-      case "STONE_SHORE" -> getColoredString("#a2a2a2", name); // Steengrijs
-      case "SUNFLOWER_PLAINS" -> getColoredString("#ffff00", name); // Zonnebloemgeel
-      case "SWAMP" -> getColoredString("#697d70", name); // Modderig groen
-      case "SWAMP_HILLS" -> getColoredString("#537b52", name); // Donker modderig groen
-      case "TAIGA" -> getColoredString("#516c51", name); // Donkergroen
-      case "TAIGA_HILLS" -> getColoredString("#4b6154", name); // Zeer donkergroen
-      case "TAIGA_MOUNTAINS" -> getColoredString("#3b4f41", name); // Bijna zwartgroen
-      case "TALL_BIRCH_FOREST" -> getColoredString("#5d732f", name); // Lichter groen
-      case "TALL_BIRCH_HILLS" -> getColoredString("#4c6226", name); // Donkerder lichtgroen
-      case "WARM_OCEAN" -> getColoredString("#ff8c00", name); // Warm oranje
-      default -> getColoredString("#ffffff", name);
-    };
-    return result.decorate(TextDecoration.BOLD);
+    TextComponent result = BIOMES.get(biomeName);
+    if(result != null) return result;
+    result = createColorizedBiome(biomeName, "#ffffff");
+    // Unknown names are cached as well, but not without limit in case a caller passes arbitrary strings
+    if(BIOMES.size() < 512) BIOMES.putIfAbsent(biomeName, result);
+    return result;
+  }
+  private static TextComponent createColorizedBiome(String biomeName, String hex) {
+    return getColoredString(hex, biomeName.replace('_', ' ')).decorate(TextDecoration.BOLD);
+  }
+  /**
+   * Gets the HUD line of a player: the direction they are facing, the biome they are in and the time of their world
+   * @param p Player to get the HUD line of
+   * @param limited Whether to only use the cardinal directions
+   * @return The HUD line or an empty Component if the player is null
+   */
+  static public Component getHudLine(@Nullable Player p, boolean limited) {
+    if(p == null) return Component.empty();
+    Location loc = p.getLocation();
+    return getHudLine(loc, limited, getTime(loc.getWorld().getTime(), loc.getWorld().isDayTime()));
+  }
+  private static Component getHudLine(Location loc, boolean limited, TextComponent time) {
+    String biome = loc.getBlock().getBiome().getKey().getKey().toUpperCase(Locale.ROOT);
+    return Component.text()
+      .append(limited ? getLimitedColoredDirection(loc.getYaw()) : getColoredDirection(loc.getYaw()))
+      .append(HUD_SEPARATOR)
+      .append(getColorizedBiome(biome))
+      .append(HUD_SEPARATOR)
+      .append(time)
+      .build();
+  }
+  /**
+   * Sends the HUD line of {@link #getHudLine(Player, boolean)} to the action bar of every player in one pass.<br>
+   * The time is looked up once per world and all parts come from the precomputed tables,
+   * so the only new object per player is the line itself. Should be called on the main thread
+   * @param players Players to send the HUD line to, e.g. {@link org.bukkit.Bukkit#getOnlinePlayers()}
+   * @param limited Whether to only use the cardinal directions
+   */
+  static public void sendHud(@NotNull Collection<? extends Player> players, boolean limited) {
+    Map<World, TextComponent> times = new HashMap<>();
+    for(Player p : players) {
+      Location loc = p.getLocation();
+      TextComponent time = times.computeIfAbsent(loc.getWorld(), world -> getTime(world.getTime(), world.isDayTime()));
+      p.sendActionBar(getHudLine(loc, limited, time));
+    }
   }
 
   /**